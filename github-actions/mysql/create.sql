@@ -14,6 +14,7 @@ CREATE TABLE User (
                       createDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                       lastModificationDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                       activeFlag BOOLEAN DEFAULT TRUE,
+                      tokensValidAfter DATETIME NULL,
 
                       INDEX idx_username (username),
                       INDEX idx_email (email),
@@ -61,3 +62,29 @@ CREATE TABLE RegistrationToken (
                                    INDEX idx_email (email),
                                    INDEX idx_expiration (expirationDate)
 );
+
+-- RefreshToken table
+CREATE TABLE RefreshToken (
+                              id INT PRIMARY KEY AUTO_INCREMENT,
+                              tokenHash VARCHAR(64) NOT NULL UNIQUE,
+                              userId INT NOT NULL,
+                              familyId VARCHAR(36) NOT NULL,
+                              expirationDate DATETIME NOT NULL,
+                              createDate DATETIME NOT NULL,
+                              usedDate DATETIME NULL,
+                              revokedFlag BOOLEAN NOT NULL DEFAULT FALSE,
+
+                              FOREIGN KEY (userId) REFERENCES User(id) ON DELETE CASCADE,
+                              INDEX idx_refresh_family (familyId),
+                              INDEX idx_refresh_expiration (expirationDate)
+);
+
+-- RevokedToken table
+CREATE TABLE RevokedToken (
+                              tokenId VARCHAR(64) PRIMARY KEY,
+                              expirationDate DATETIME NOT NULL,
+                              revokedDate DATETIME NOT NULL,
+
+                              INDEX idx_revoked_expiration (expirationDate),
+                              INDEX idx_revoked_date (revokedDate)
+);
@@ -2,8 +2,10 @@ package org.beaconfire.authentication;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication()
+@EnableScheduling
 public class AuthenticationApplication {
 
     public static void main(String[] args) {
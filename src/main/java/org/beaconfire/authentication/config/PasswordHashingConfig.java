@@ -0,0 +1,88 @@
+package org.beaconfire.authentication.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.beaconfire.authentication.security.BoundedPasswordEncoder;
+import org.beaconfire.authentication.security.PasswordHashingCalibrator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Password hashing. New hashes are stored with an id prefix, {@code {bcrypt}} or {@code {argon2}},
+ * so the algorithm and its parameters can change without invalidating existing passwords. Hashes
+ * stored before the prefix was introduced are BCrypt and still match.
+ * <p>
+ * A cost of 0 is calibrated at startup against {@code app.password-hashing.budget-in-ms}. Hashes
+ * with an outdated algorithm or cost are rehashed on the next successful login, see
+ * {@link org.beaconfire.authentication.service.CustomUserDetailsService#updatePassword}.
+ */
+@Configuration
+public class PasswordHashingConfig {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    // bcrypt or argon2, used for new hashes
+    @Value("${app.password-hashing.algorithm:bcrypt}")
+    private String algorithm;
+    @Value("${app.password-hashing.budget-in-ms:250}")
+    private long budgetMs;
+
+    @Value("${app.password-hashing.bcrypt.strength:0}")
+    private int bcryptStrength;
+    @Value("${app.password-hashing.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+    @Value("${app.password-hashing.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
+
+    @Value("${app.password-hashing.argon2.memory-in-kb:19456}")
+    private int argon2MemoryKb;
+    @Value("${app.password-hashing.argon2.parallelism:1}")
+    private int argon2Parallelism;
+    @Value("${app.password-hashing.argon2.iterations:0}")
+    private int argon2Iterations;
+    @Value("${app.password-hashing.argon2.min-iterations:2}")
+    private int argon2MinIterations;
+    @Value("${app.password-hashing.argon2.max-iterations:10}")
+    private int argon2MaxIterations;
+
+    /**
+     * The hashing encoder on a dedicated, bounded pool, so password checks cannot take every request thread.
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${app.password-hashing.threads:0}") int threads,
+                                           @Value("${app.password-hashing.queue-capacity:32}") int queueCapacity,
+                                           @Value("${app.password-hashing.retry-after-in-seconds:1}") long retryAfterSeconds) {
+        return new BoundedPasswordEncoder(hashingEncoder(),
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                queueCapacity, retryAfterSeconds, meterRegistry);
+    }
+
+    private PasswordEncoder hashingEncoder() {
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalStateException("Unsupported password hashing algorithm: " + algorithm);
+        }
+        // Only the encoder for new hashes is calibrated; the other one reads its parameters from the stored hash
+        BCryptPasswordEncoder bcrypt = BCRYPT.equals(algorithm)
+                ? new BCryptPasswordEncoder(bcryptStrength > 0 ? bcryptStrength
+                        : PasswordHashingCalibrator.bcryptStrength(budgetMs, bcryptMinStrength, bcryptMaxStrength))
+                : new BCryptPasswordEncoder();
+        int iterations = ARGON2.equals(algorithm) && argon2Iterations <= 0
+                ? PasswordHashingCalibrator.argon2Iterations(budgetMs, argon2MemoryKb, argon2Parallelism,
+                        argon2MinIterations, argon2MaxIterations)
+                : Math.max(1, argon2Iterations);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(ARGON2, PasswordHashingCalibrator.argon2(argon2MemoryKb, argon2Parallelism, iterations));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+}
@@ -0,0 +1,44 @@
+package org.beaconfire.authentication.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.beaconfire.authentication.security.JwtKeyRing;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the public signing keys so other services can verify tokens locally.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+    private final JwtTokenProvider tokenProvider;
+
+    @Value("${app.jwt.jwks.max-age-in-seconds:300}")
+    private long maxAgeInSeconds;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getJwks(WebRequest request) {
+        JwtKeyRing.PublishedKeys publishedKeys = tokenProvider.getKeyRing().getPublishedKeys();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeInSeconds, TimeUnit.SECONDS).cachePublic();
+
+        if (request.checkNotModified(publishedKeys.getETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(publishedKeys.getETag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(publishedKeys.getETag())
+                .body(publishedKeys.getJson());
+    }
+}
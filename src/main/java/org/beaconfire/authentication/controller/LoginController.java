@@ -3,9 +3,17 @@ package org.beaconfire.authentication.controller;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.beaconfire.authentication.dto.auth.AuthRequest;
+import org.beaconfire.authentication.dto.auth.LoginResponse;
+import org.beaconfire.authentication.dto.request.RefreshTokenRequest;
+import org.beaconfire.authentication.exception.TokenExpiredException;
+import org.beaconfire.authentication.exception.TokenNotFoundException;
 import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.model.UserRole;
 import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.security.CustomUserPrincipal;
 import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.LoginThrottle;
+import org.beaconfire.authentication.service.RefreshTokenService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,9 +28,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,15 +41,21 @@ public class LoginController {
     private AuthenticationManager authenticationManager;
     private JwtTokenProvider tokenProvider;
     private UserRepository userRepository;
+    private RefreshTokenService refreshTokenService;
+    private LoginThrottle loginThrottle;
 
     /**
      * Authenticates a user and returns a JWT.
      *
+     * Attempts over the per-username or per-IP limit are rejected with 429 before the password is checked.
+     *
      * @param authRequest The request body containing username and password.
-     * @return A ResponseEntity containing the JWT.
+     * @param request     The HTTP request, for the client address.
+     * @return A ResponseEntity containing the JWT and a refresh token.
      */
     @PostMapping
-    public ResponseEntity<?> authenticateUser(@RequestBody AuthRequest authRequest) {
+    public ResponseEntity<?> authenticateUser(@RequestBody AuthRequest authRequest, HttpServletRequest request) {
+        loginThrottle.acquire(authRequest.getUsername(), request.getRemoteAddr());
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -52,30 +66,15 @@ public class LoginController {
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            // Fetch User entity to get id and email
-            User user = userRepository.findByUsername(userDetails.getUsername()).orElse(null);
+            // The principal already holds the user loaded during authentication
+            CustomUserPrincipal principal = userDetails instanceof CustomUserPrincipal
+                    ? (CustomUserPrincipal) userDetails
+                    : CustomUserPrincipal.fromCredentials(userRepository.findCredentialsByUsername(userDetails.getUsername()));
+            User user = principal == null ? null : principal.getUser();
             if (user == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found.");
             }
-            // Extract roles as array
-            Set<String> roles = user.getUserRoles().stream()
-                    .map(ur -> ur.getRole().getRoleName())
-                    .collect(Collectors.toSet());
-            // Build claims
-            Map<String, Object> claims = new HashMap<>();
-            claims.put("sub", user.getId().toString());
-            claims.put("username", user.getUsername());
-            claims.put("email", user.getEmail());
-            claims.put("roles", roles);
-            // JWT with custom claims
-            String jwt = tokenProvider.generateTokenWithClaims(claims);
-            // Build frontend response
-            Map<String, Object> frontendResponse = new HashMap<>();
-            frontendResponse.put("status", "ok");
-            frontendResponse.put("type", "account");
-            frontendResponse.put("currentAuthority", roles.stream().findFirst().orElse("hr"));
-            frontendResponse.put("token", jwt);
-            return ResponseEntity.ok(frontendResponse);
+            return ResponseEntity.ok(tokenResponse(user, refreshTokenService.issue(user)));
         } catch (BadCredentialsException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Invalid username or password.");
@@ -84,4 +83,37 @@ public class LoginController {
                     .body("Authentication failed due to server error.");
         }
     }
+
+    /**
+     * Exchanges a refresh token for a new JWT and refresh token, without checking the password.
+     *
+     * @param request The request body containing the refresh token.
+     * @return A ResponseEntity containing the JWT and the new refresh token.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+            return ResponseEntity.ok(tokenResponse(rotation.getUser(), rotation.getRefreshToken()));
+        } catch (TokenNotFoundException | TokenExpiredException ex) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ex.getMessage());
+        }
+    }
+
+    private LoginResponse tokenResponse(User user, String refreshToken) {
+        // A refreshed user is the full entity, whose role links include deactivated ones
+        List<String> roles = user.getUserRoles().stream()
+                .filter(UserRole::isActiveRole)
+                .map(ur -> ur.getRole().getRoleName())
+                .distinct()
+                .collect(Collectors.toList());
+        String jwt = tokenProvider.generateToken(user.getId(), user.getUsername(), user.getEmail(), roles);
+        return LoginResponse.builder()
+                .status("ok")
+                .type("account")
+                .currentAuthority(roles.isEmpty() ? "hr" : roles.get(0))
+                .token(jwt)
+                .refreshToken(refreshToken)
+                .build();
+    }
 }
@@ -1,46 +1,148 @@
 package org.beaconfire.authentication.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.beaconfire.authentication.dto.request.BulkUserUpdateRequest;
+import org.beaconfire.authentication.dto.request.UserImportRequest;
+import org.beaconfire.authentication.dto.response.BulkUserUpdateResponse;
+import org.beaconfire.authentication.dto.response.UserImportResponse;
+import org.beaconfire.authentication.dto.response.UserPageResponse;
+import org.beaconfire.authentication.dto.user.UserSummary;
+import org.beaconfire.authentication.event.UserChangedEvent;
 import org.beaconfire.authentication.model.Role;
 import org.beaconfire.authentication.model.User;
 import org.beaconfire.authentication.model.UserRole;
-import org.beaconfire.authentication.repository.RoleRepository;
 import org.beaconfire.authentication.repository.UserRepository;
 import org.beaconfire.authentication.repository.UserRoleRepository;
+import org.beaconfire.authentication.repository.projection.UserSummaryRow;
+import org.beaconfire.authentication.service.ChangeVersion;
+import org.beaconfire.authentication.service.RoleRegistry;
+import org.beaconfire.authentication.service.TokenEpochService;
+import org.beaconfire.authentication.service.UserBulkUpdateService;
+import org.beaconfire.authentication.service.UserExportService;
+import org.beaconfire.authentication.service.UserImportService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/secure")
 @PreAuthorize("hasRole('COMPOSITE')")
 @RequiredArgsConstructor
 public class SecureController {
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final UserRoleRepository userRoleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenEpochService tokenEpochService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserBulkUpdateService userBulkUpdateService;
+    private final ChangeVersion changeVersion;
 
+    /**
+     * Lists every user as {@code userId}, {@code username} and {@code role}, the response this
+     * endpoint has always given. The users are read in pages of {@value #MAX_PAGE_SIZE}; clients
+     * that can page should use {@link #getUserPage} instead.
+     *
+     * @return The users in id order, or 304 if nothing changed since the ETag in If-None-Match.
+     */
     @GetMapping("/users")
-    public ResponseEntity<List<Map<String, String>>> getUserList() {
-        List<Map<String, String>> users = userRepository.findAll().stream().map(user -> {
-            String role = user.getUserRoles().stream()
-                    .findFirst()
-                    .map(ur -> ur.getRole().getRoleName())
-                    .orElse("");
-            Map<String, String> userMap = new HashMap<>();
-            userMap.put("userId", user.getId().toString());
-            userMap.put("username", user.getUsername());
-            userMap.put("role", role);
-            return userMap;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<Map<String, String>>> getUserList(WebRequest webRequest) {
+        String etag = changeVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        List<Map<String, String>> users = new ArrayList<>();
+        int afterId = 0;
+        List<UserSummaryRow> rows;
+        do {
+            rows = userRepository.findUserPage(afterId, PageRequest.of(0, MAX_PAGE_SIZE));
+            for (UserSummaryRow row : rows) {
+                Map<String, String> userMap = new HashMap<>();
+                userMap.put("userId", row.getId().toString());
+                userMap.put("username", row.getUsername());
+                userMap.put("role", row.getRoleName() == null ? "" : row.getRoleName());
+                users.add(userMap);
+                afterId = row.getId();
+            }
+        } while (rows.size() == MAX_PAGE_SIZE);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(users);
+    }
+
+    /**
+     * Lists users in id order, one page at a time.
+     *
+     * @param after The {@code next} cursor of the previous page, absent for the first page.
+     * @param limit The page size, at most {@value #MAX_PAGE_SIZE}.
+     * @return The page and the cursor of the next one, or 304 if nothing changed since the ETag in If-None-Match.
+     */
+    @GetMapping("/users/page")
+    public ResponseEntity<UserPageResponse> getUserPage(@RequestParam(required = false) String after,
+                                                        @RequestParam(defaultValue = "100") int limit,
+                                                        WebRequest webRequest) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        String etag = changeVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        // One extra row tells whether there is a next page
+        List<UserSummaryRow> rows = userRepository.findUserPage(decodeCursor(after), PageRequest.of(0, limit + 1));
+        int size = Math.min(rows.size(), limit);
+        List<UserSummary> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UserSummaryRow row = rows.get(i);
+            users.add(UserSummary.builder()
+                    .userId(row.getId())
+                    .username(row.getUsername())
+                    .role(row.getRoleName() == null ? "" : row.getRoleName())
+                    .build());
+        }
+        String next = rows.size() > limit ? encodeCursor(users.get(size - 1).getUserId()) : null;
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(UserPageResponse.builder().users(users).next(next).build());
+    }
+
+    /**
+     * Streams every user and their roles as newline delimited JSON, for reporting jobs.
+     */
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(WebRequest webRequest) {
+        String etag = changeVersion.etag();
+        if (webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+                .body(userExportService::export);
     }
 
     @PostMapping("/users")
@@ -54,10 +156,10 @@ public class SecureController {
                 .build();
         user = userRepository.save(user);
         // Assign default role
-        Role defaultRole = roleRepository.findByRoleName("ROLE_ONBOARD")
-                .orElseGet(() -> roleRepository.save(Role.builder().roleName("ROLE_ONBOARD").roleDescription("Default role").build()));
+        Role defaultRole = roleRegistry.getOrCreate("ROLE_ONBOARD", "Default role");
         UserRole userRole = UserRole.builder().user(user).role(defaultRole).activeFlag(true).build();
         userRoleRepository.save(userRole);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("userId", user.getId().toString());
         responseMap.put("username", user.getUsername());
@@ -65,6 +167,32 @@ public class SecureController {
         return ResponseEntity.ok(responseMap);
     }
 
+    /**
+     * Creates many users at once, for onboarding a cohort. Entries that cannot be created are skipped.
+     *
+     * @return One result per entry, in the same order.
+     */
+    @PostMapping("/users/import")
+    public ResponseEntity<UserImportResponse> importUsers(@RequestBody UserImportRequest request) {
+        return ResponseEntity.ok(userImportService.importUsers(request));
+    }
+
+    /**
+     * Replaces all roles of many users, selected by id or by their current role, with one role.
+     */
+    @PutMapping("/users/role")
+    public ResponseEntity<BulkUserUpdateResponse> reassignRole(@RequestBody BulkUserUpdateRequest request) {
+        return ResponseEntity.ok(userBulkUpdateService.reassignRole(request));
+    }
+
+    /**
+     * Activates or deactivates many users, selected by id or by their current role.
+     */
+    @PutMapping("/users/active")
+    public ResponseEntity<BulkUserUpdateResponse> setActive(@RequestBody BulkUserUpdateRequest request) {
+        return ResponseEntity.ok(userBulkUpdateService.setActive(request));
+    }
+
     @PutMapping("/users/{userId}/role")
     public ResponseEntity<Map<String, String>> updateUserRole(@PathVariable Integer userId, @RequestBody Map<String, String> request) {
         String roleName = request.get("role");
@@ -72,16 +200,46 @@ public class SecureController {
         if (user == null) {
             return ResponseEntity.notFound().build();
         }
-        Role role = roleRepository.findByRoleName(roleName)
-                .orElseGet(() -> roleRepository.save(Role.builder().roleName(roleName).roleDescription("Custom role").build()));
+        Role role = roleRegistry.getOrCreate(roleName, "Custom role");
         // Remove old roles and assign new
         userRoleRepository.deleteAll(user.getUserRoles());
         UserRole userRole = UserRole.builder().user(user).role(role).activeFlag(true).build();
         userRoleRepository.save(userRole);
+        // Tokens issued so far still carry the old roles
+        tokenEpochService.revokeIssuedTokens(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("userId", user.getId().toString());
         responseMap.put("username", user.getUsername());
         responseMap.put("role", role.getRoleName());
         return ResponseEntity.ok(responseMap);
     }
+
+    // no-cache instead of Spring Security's default no-store, so clients may keep a listing and revalidate it
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+
+    private static String encodeCursor(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            int lastId = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if (lastId >= 0) {
+                return lastId;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not Base64 or not a number
+        }
+        throw new IllegalArgumentException("Invalid cursor.");
+    }
 }
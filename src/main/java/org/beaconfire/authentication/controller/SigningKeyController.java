@@ -0,0 +1,74 @@
+package org.beaconfire.authentication.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.beaconfire.authentication.dto.request.SigningKeyRequest;
+import org.beaconfire.authentication.dto.response.SigningKeyResponse;
+import org.beaconfire.authentication.security.AsymmetricKeys;
+import org.beaconfire.authentication.security.JwtKeyRing;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.VerifiedTokenCache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * Rotates the JWT signing keys of this node without a restart.
+ * Keys live in memory only, so every node has to be rotated.
+ */
+@RestController
+@RequestMapping("/secure/keys")
+@PreAuthorize("hasRole('COMPOSITE')")
+@RequiredArgsConstructor
+public class SigningKeyController {
+    private final JwtTokenProvider tokenProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    @GetMapping
+    public ResponseEntity<SigningKeyResponse> getKeys() {
+        return ResponseEntity.ok(describe(tokenProvider.getKeyRing()));
+    }
+
+    @PostMapping
+    public ResponseEntity<SigningKeyResponse> addKey(@Valid @RequestBody SigningKeyRequest request) {
+        JwtKeyRing keyRing = tokenProvider.getKeyRing();
+        if (AsymmetricKeys.isAsymmetric(request.getAlgorithm())) {
+            keyRing.addKey(request.getKeyId(),
+                    AsymmetricKeys.decode(request.getAlgorithm(), request.getPrivateKey(), request.getPublicKey()),
+                    request.getAlgorithm());
+        } else if (request.getAlgorithm() == null || "HS256".equals(request.getAlgorithm())) {
+            if (!StringUtils.hasText(request.getSecret())) {
+                throw new IllegalArgumentException("Secret cannot be empty for an HS256 key.");
+            }
+            keyRing.addKey(request.getKeyId(), request.getSecret());
+        } else {
+            throw new IllegalArgumentException("Unsupported JWT algorithm: " + request.getAlgorithm());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(describe(keyRing));
+    }
+
+    @PutMapping("/{keyId}/active")
+    public ResponseEntity<SigningKeyResponse> promoteKey(@PathVariable String keyId) {
+        JwtKeyRing keyRing = tokenProvider.getKeyRing();
+        keyRing.promoteKey(keyId);
+        return ResponseEntity.ok(describe(keyRing));
+    }
+
+    @DeleteMapping("/{keyId}")
+    public ResponseEntity<SigningKeyResponse> retireKey(@PathVariable String keyId) {
+        tokenProvider.retireKey(keyId);
+        // Cached tokens are not verified again; the cache does not know their keys, so drop all of them
+        verifiedTokenCache.invalidateAll();
+        return ResponseEntity.ok(describe(tokenProvider.getKeyRing()));
+    }
+
+    private SigningKeyResponse describe(JwtKeyRing keyRing) {
+        return SigningKeyResponse.builder()
+                .activeKeyId(keyRing.getActiveKey().getKeyId())
+                .keyIds(keyRing.getKeyIds())
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package org.beaconfire.authentication.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.beaconfire.authentication.dto.request.TokenIntrospectionRequest;
+import org.beaconfire.authentication.dto.response.TokenIntrospectionResponse;
+import org.beaconfire.authentication.service.TokenIntrospectionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("/secure/tokens")
+@RequiredArgsConstructor
+public class TokenIntrospectionController {
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    /**
+     * Checks a batch of tokens for the composite service.
+     *
+     * @param request The tokens to check.
+     * @return One result per token, in request order.
+     */
+    @PostMapping("/introspect")
+    @PreAuthorize("hasRole('COMPOSITE')")
+    public ResponseEntity<List<TokenIntrospectionResponse>> introspect(
+            @Valid @RequestBody TokenIntrospectionRequest request) {
+        return ResponseEntity.ok(tokenIntrospectionService.introspect(request.getTokens()));
+    }
+}
@@ -0,0 +1,54 @@
+package org.beaconfire.authentication.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.beaconfire.authentication.dto.request.TokenRevocationRequest;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.ParsedToken;
+import org.beaconfire.authentication.service.TokenRevocationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class TokenRevocationController {
+    private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationService tokenRevocationService;
+
+    /**
+     * Revokes the bearer token the request was made with, e.g. on logout.
+     *
+     * @param authorization The Authorization header.
+     * @return 204 once the token is revoked, 400 if the token is missing or invalid.
+     */
+    @PostMapping("/auth/revoke")
+    public ResponseEntity<?> revokeOwnToken(
+            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (!StringUtils.hasText(authorization) || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("Bearer token is required.");
+        }
+        ParsedToken token = tokenProvider.parseToken(authorization.substring(7));
+        if (!token.isValid() || token.getTokenId() == null) {
+            return ResponseEntity.badRequest().body("Token cannot be revoked.");
+        }
+        tokenRevocationService.revoke(token.getTokenId(), token.getExpiration());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/secure/tokens/revoke")
+    @PreAuthorize("hasRole('COMPOSITE')")
+    public ResponseEntity<Map<String, Integer>> revokeTokens(@Valid @RequestBody TokenRevocationRequest request) {
+        for (String tokenId : request.getTokenIds()) {
+            tokenRevocationService.revoke(tokenId, null);
+        }
+        return ResponseEntity.ok(Collections.singletonMap("revoked", request.getTokenIds().size()));
+    }
+}
@@ -0,0 +1,20 @@
+package org.beaconfire.authentication.dto.auth;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonSerialize(using = LoginResponseSerializer.class)
+public class LoginResponse {
+    private String status;
+    private String type;
+    private String currentAuthority;
+    private String token;
+    private String refreshToken;
+}
@@ -0,0 +1,42 @@
+package org.beaconfire.authentication.dto.auth;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link LoginResponse} straight to the generator, with field names encoded once, instead
+ * of going through bean introspection and a reflective getter call per property on every login.
+ * The output is the same as the default bean serialization.
+ */
+public class LoginResponseSerializer extends StdSerializer<LoginResponse> {
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString CURRENT_AUTHORITY = new SerializedString("currentAuthority");
+    private static final SerializableString TOKEN = new SerializedString("token");
+    private static final SerializableString REFRESH_TOKEN = new SerializedString("refreshToken");
+
+    public LoginResponseSerializer() {
+        super(LoginResponse.class);
+    }
+
+    @Override
+    public void serialize(LoginResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeFieldName(STATUS);
+        gen.writeString(value.getStatus());
+        gen.writeFieldName(TYPE);
+        gen.writeString(value.getType());
+        gen.writeFieldName(CURRENT_AUTHORITY);
+        gen.writeString(value.getCurrentAuthority());
+        gen.writeFieldName(TOKEN);
+        gen.writeString(value.getToken());
+        gen.writeFieldName(REFRESH_TOKEN);
+        gen.writeString(value.getRefreshToken());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,25 @@
+package org.beaconfire.authentication.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Selects users either by id or by one of their active roles, and what to change about them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserUpdateRequest {
+    private List<Integer> userIds;
+    // Selects the users that currently have this role, instead of userIds
+    private String currentRole;
+    // The role that replaces all roles of the selected users
+    private String role;
+    // Whether the selected users are activated or deactivated
+    private Boolean active;
+}
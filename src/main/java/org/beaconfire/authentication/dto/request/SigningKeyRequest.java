@@ -0,0 +1,27 @@
+package org.beaconfire.authentication.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SigningKeyRequest {
+    @NotBlank(message = "Key id cannot be empty")
+    private String keyId;
+
+    // HS256 by default, or ES256 / EdDSA
+    private String algorithm;
+
+    // Base64 HMAC secret, required for HS256
+    private String secret;
+
+    // Base64 PKCS#8 private key and X.509 public key, for ES256 and EdDSA
+    private String privateKey;
+    private String publicKey;
+}
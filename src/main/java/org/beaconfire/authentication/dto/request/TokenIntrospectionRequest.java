@@ -0,0 +1,18 @@
+package org.beaconfire.authentication.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenIntrospectionRequest {
+    @NotEmpty(message = "Tokens cannot be empty")
+    private List<String> tokens;
+}
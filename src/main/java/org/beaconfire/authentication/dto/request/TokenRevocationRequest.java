@@ -0,0 +1,22 @@
+package org.beaconfire.authentication.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocationRequest {
+    // The jti claims of the tokens to revoke
+    @NotEmpty(message = "Token ids cannot be empty")
+    private List<@NotBlank(message = "Token ids cannot be blank")
+            @Size(max = 64, message = "Token ids cannot be longer than 64 characters") String> tokenIds;
+}
@@ -0,0 +1,19 @@
+package org.beaconfire.authentication.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.beaconfire.authentication.dto.user.UserImportEntry;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRequest {
+    // An existing role given to every imported user, ROLE_ONBOARDING if absent
+    private String role;
+    private List<UserImportEntry> users;
+}
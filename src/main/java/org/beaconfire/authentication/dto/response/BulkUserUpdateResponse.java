@@ -0,0 +1,20 @@
+package org.beaconfire.authentication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserUpdateResponse {
+    // Users selected by the request
+    private int matched;
+    // Users whose active flag changed
+    private int updated;
+    private int rolesRemoved;
+    // Role links created or reactivated
+    private int rolesAdded;
+}
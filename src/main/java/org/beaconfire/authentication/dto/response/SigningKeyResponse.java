@@ -0,0 +1,17 @@
+package org.beaconfire.authentication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SigningKeyResponse {
+    private String activeKeyId;
+    private Set<String> keyIds;
+}
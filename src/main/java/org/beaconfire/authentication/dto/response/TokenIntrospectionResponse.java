@@ -0,0 +1,25 @@
+package org.beaconfire.authentication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.beaconfire.authentication.security.TokenFailureReason;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenIntrospectionResponse {
+    private boolean active;
+    private String subject;
+    private Integer userId;
+    private String username;
+    private List<String> roles;
+    private LocalDateTime expiration;
+    // Set when the token is not active
+    private TokenFailureReason failureReason;
+}
@@ -0,0 +1,20 @@
+package org.beaconfire.authentication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.beaconfire.authentication.dto.user.UserImportResult;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResponse {
+    private int created;
+    private int failed;
+    // One result per entry of the request, in the same order
+    private List<UserImportResult> results;
+}
@@ -0,0 +1,19 @@
+package org.beaconfire.authentication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.beaconfire.authentication.dto.user.UserSummary;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageResponse {
+    private List<UserSummary> users;
+    // Pass as the after parameter to get the next page, null on the last page
+    private String next;
+}
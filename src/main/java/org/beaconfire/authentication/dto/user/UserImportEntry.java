@@ -0,0 +1,29 @@
+package org.beaconfire.authentication.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportEntry {
+    @NotBlank(message = "Username cannot be empty")
+    @Size(min = 3, max = 255, message = "Username must be between 3 and 255 characters")
+    private String username;
+
+    @NotBlank(message = "Password cannot be empty")
+    @Size(min = 6, max = 255, message = "Password must be between 6 and 255 characters")
+    private String password;
+
+    @NotBlank(message = "Email cannot be empty")
+    @Email(message = "Email should be valid")
+    @Size(max = 255, message = "Email must not exceed 255 characters")
+    private String email;
+}
@@ -0,0 +1,21 @@
+package org.beaconfire.authentication.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResult {
+    // Position of the entry in the request
+    private int index;
+    private String username;
+    private boolean created;
+    // Set when the user was created
+    private Integer userId;
+    // Set when the user was not created
+    private String error;
+}
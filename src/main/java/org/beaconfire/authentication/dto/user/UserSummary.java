@@ -0,0 +1,17 @@
+package org.beaconfire.authentication.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+    private Integer userId;
+    private String username;
+    // The alphabetically first active role, empty if the user has none
+    private String role;
+}
@@ -0,0 +1,15 @@
+package org.beaconfire.authentication.event;
+
+import lombok.Value;
+
+/**
+ * Published when a user is created or their account data changes, so in-memory caches of user
+ * data can drop their entry. Listeners should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)}, so they run once the change is
+ * committed, or at once if there is no transaction.
+ */
+@Value
+public class UserChangedEvent {
+    Integer userId;
+    String username;
+}
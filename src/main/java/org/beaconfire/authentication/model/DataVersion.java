@@ -0,0 +1,26 @@
+package org.beaconfire.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "DataVersion")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DataVersion {
+
+    // What the version counts changes of, e.g. the users and their roles
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Increased in the transaction of every change
+    @Column(nullable = false)
+    private Long version;
+}
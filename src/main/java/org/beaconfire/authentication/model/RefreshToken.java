@@ -0,0 +1,56 @@
+package org.beaconfire.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "RefreshToken", indexes = {
+        @Index(name = "idx_refresh_family", columnList = "familyId"),
+        @Index(name = "idx_refresh_expiration", columnList = "expirationDate")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    // SHA-256 digest of the token handed to the client; the token itself is never stored
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "userId", nullable = false, foreignKey = @ForeignKey(name = "FK_RefreshToken_User"))
+    private User user;
+
+    // Shared by every token rotated from the same login
+    @Column(nullable = false, length = 36)
+    private String familyId;
+
+    @Column(nullable = false)
+    private LocalDateTime expirationDate;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createDate;
+
+    // Set when the token is exchanged for a new one
+    private LocalDateTime usedDate;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean revokedFlag = false;
+
+    public boolean isExpired() {
+        return LocalDateTime.now().isAfter(expirationDate);
+    }
+}
@@ -0,0 +1,35 @@
+package org.beaconfire.authentication.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "RevokedToken", indexes = {
+        @Index(name = "idx_revoked_expiration", columnList = "expirationDate"),
+        @Index(name = "idx_revoked_date", columnList = "revokedDate")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    // The jti claim of the revoked JWT
+    @Id
+    @Column(length = 64)
+    private String tokenId;
+
+    // The exp claim of the revoked JWT, after which the row is no longer needed
+    @Column(nullable = false)
+    private LocalDateTime expirationDate;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime revokedDate;
+}
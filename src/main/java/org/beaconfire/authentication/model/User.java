@@ -57,6 +57,11 @@ public class User {
     @Builder.Default
     private Boolean activeFlag = true;
 
+    /**
+     * JWTs issued before this moment are rejected, even if they have not expired yet.
+     */
+    private LocalDateTime tokensValidAfter;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @Builder.Default
     @ToString.Exclude
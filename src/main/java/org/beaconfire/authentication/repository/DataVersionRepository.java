@@ -0,0 +1,22 @@
+package org.beaconfire.authentication.repository;
+
+import org.beaconfire.authentication.model.DataVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DataVersionRepository extends JpaRepository<DataVersion, String> {
+
+    @Query("SELECT v.version FROM DataVersion v WHERE v.name = :name")
+    Long findVersion(@Param("name") String name);
+
+    // Joins the caller's transaction, so the version only moves if the change commits
+    @Modifying
+    @Transactional
+    @Query("UPDATE DataVersion v SET v.version = v.version + 1 WHERE v.name = :name")
+    int increment(@Param("name") String name);
+}
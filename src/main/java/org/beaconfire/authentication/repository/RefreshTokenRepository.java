@@ -0,0 +1,41 @@
+package org.beaconfire.authentication.repository;
+
+import org.beaconfire.authentication.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Integer> {
+
+    @Query("SELECT rt FROM RefreshToken rt JOIN FETCH rt.user WHERE rt.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Marks a token as used, unless it already was. Two concurrent refreshes with the same token
+     * cannot both succeed, because only one of them updates the row.
+     *
+     * @return 1 if this call used the token, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken rt SET rt.usedDate = :usedDate " +
+            "WHERE rt.id = :id AND rt.usedDate IS NULL AND rt.revokedFlag = false")
+    int markUsed(@Param("id") Integer id, @Param("usedDate") LocalDateTime usedDate);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken rt SET rt.revokedFlag = true WHERE rt.familyId = :familyId")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken rt WHERE rt.expirationDate <= :currentDate")
+    int deleteExpiredTokens(@Param("currentDate") LocalDateTime currentDate);
+}
@@ -0,0 +1,27 @@
+package org.beaconfire.authentication.repository;
+
+import org.beaconfire.authentication.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    @Query("SELECT rt.tokenId FROM RevokedToken rt WHERE rt.expirationDate > :currentDate")
+    List<String> findValidTokenIds(@Param("currentDate") LocalDateTime currentDate);
+
+    @Query("SELECT rt.tokenId FROM RevokedToken rt WHERE rt.revokedDate >= :since")
+    List<String> findTokenIdsRevokedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken rt WHERE rt.expirationDate <= :currentDate")
+    int deleteExpiredTokens(@Param("currentDate") LocalDateTime currentDate);
+}
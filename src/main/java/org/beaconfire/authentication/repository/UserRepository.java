@@ -1,26 +1,75 @@
 package org.beaconfire.authentication.repository;
 
 import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.repository.projection.UserCredentialRow;
+import org.beaconfire.authentication.repository.projection.UserExportRow;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.beaconfire.authentication.repository.projection.UserSummaryRow;
+import org.beaconfire.authentication.repository.projection.UserTokenEpoch;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
     Optional<User> findByUsername(String username);
 
+    /**
+     * Loads what authentication needs in one query, without putting entities in the persistence context.
+     */
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.password AS password, " +
+            "u.activeFlag AS activeFlag, r.roleName AS roleName " +
+            "FROM User u LEFT JOIN u.userRoles ur ON ur.activeFlag = true LEFT JOIN ur.role r " +
+            "WHERE u.username = :username")
+    List<UserCredentialRow> findCredentialsByUsername(@Param("username") String username);
+
     Optional<User> findByEmail(String email);
 
     Optional<User> findByUsernameOrEmail(String username, String email);
 
     boolean existsByUsername(String username);
 
+    @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.username IN :usernames")
+    List<UserIdRow> findIdsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.id IN :ids")
+    List<UserIdRow> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT u.id AS id, u.username AS username FROM User u " +
+            "WHERE u.id IN :userIds AND u.activeFlag <> :activeFlag")
+    List<UserIdRow> findIdsByIdInAndActiveFlagNot(@Param("userIds") Collection<Integer> userIds,
+                                                  @Param("activeFlag") Boolean activeFlag);
+
+    // Users whose active roles are exactly the given one
+    @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.id IN :userIds " +
+            "AND EXISTS (SELECT ur FROM UserRole ur WHERE ur.user = u AND ur.role.id = :roleId AND ur.activeFlag = true) " +
+            "AND NOT EXISTS (SELECT ur FROM UserRole ur WHERE ur.user = u AND ur.role.id <> :roleId AND ur.activeFlag = true)")
+    List<UserIdRow> findIdsWithOnlyActiveRole(@Param("userIds") Collection<Integer> userIds,
+                                              @Param("roleId") Integer roleId);
+
+    @Query("SELECT u.id AS id, u.username AS username FROM User u JOIN u.userRoles ur JOIN ur.role r " +
+            "WHERE r.roleName = :roleName AND ur.activeFlag = true")
+    List<UserIdRow> findIdsByRoleName(@Param("roleName") String roleName);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+
     boolean existsByEmail(String email);
 
     List<User> findByActiveFlag(Boolean activeFlag);
@@ -35,6 +84,64 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Query("SELECT u FROM User u JOIN u.userRoles ur JOIN ur.role r WHERE r.roleName = :roleName AND ur.activeFlag = true")
     List<User> findUsersByRoleName(@Param("roleName") String roleName);
 
+    /**
+     * One page of the user listing, in id order, with one row per user. A user with several active
+     * roles is listed with the alphabetically first of them, so the role shown does not change
+     * between requests; the export lists all of them.
+     *
+     * @param afterId  The last id of the previous page, 0 for the first page.
+     * @param pageable The page size; the page number must be 0.
+     */
+    @Query("SELECT u.id AS id, u.username AS username, MIN(r.roleName) AS roleName " +
+            "FROM User u LEFT JOIN u.userRoles ur ON ur.activeFlag = true LEFT JOIN ur.role r " +
+            "WHERE u.id > :afterId GROUP BY u.id, u.username ORDER BY u.id")
+    List<UserSummaryRow> findUserPage(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Every user with each of their active roles, one row per role, in id order. The rows are read
+     * forward-only and must be consumed inside a transaction. With this fetch size MySQL Connector/J
+     * hands the rows over as they arrive instead of buffering the whole result.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.activeFlag AS activeFlag, " +
+            "u.createDate AS createDate, r.roleName AS roleName " +
+            "FROM User u LEFT JOIN u.userRoles ur ON ur.activeFlag = true LEFT JOIN ur.role r ORDER BY u.id")
+    Stream<UserExportRow> streamUserExport();
+
     @Query("SELECT COUNT(u) FROM User u WHERE u.activeFlag = true")
     long countActiveUsers();
+
+    @Query("SELECT u.username AS username, u.activeFlag AS activeFlag, u.tokensValidAfter AS tokensValidAfter " +
+            "FROM User u WHERE u.activeFlag = false OR u.tokensValidAfter IS NOT NULL")
+    List<UserTokenEpoch> findTokenEpochs();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokensValidAfter = :validAfter WHERE u.id = :userId")
+    int updateTokensValidAfter(@Param("userId") Integer userId, @Param("validAfter") LocalDateTime validAfter);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokensValidAfter = :validAfter WHERE u.id IN :userIds")
+    int updateTokensValidAfterIn(@Param("userIds") Collection<Integer> userIds,
+                                 @Param("validAfter") LocalDateTime validAfter);
+
+    /**
+     * @return The number of users whose flag changed.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.activeFlag = :activeFlag, u.lastModificationDate = :now " +
+            "WHERE u.id IN :userIds AND u.activeFlag <> :activeFlag")
+    int updateActiveFlagIn(@Param("userIds") Collection<Integer> userIds,
+                           @Param("activeFlag") Boolean activeFlag,
+                           @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
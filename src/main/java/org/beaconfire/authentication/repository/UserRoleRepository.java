@@ -8,6 +8,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,32 @@ public interface UserRoleRepository extends JpaRepository<UserRole, Integer> {
                                  @Param("roleId") Integer roleId,
                                  @Param("activeFlag") Boolean activeFlag);
 
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UserRole ur WHERE ur.user.id IN :userIds AND ur.role.id <> :roleId")
+    int deleteOtherRoles(@Param("userIds") Collection<Integer> userIds, @Param("roleId") Integer roleId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserRole ur SET ur.activeFlag = true, ur.lastModificationDate = :now " +
+            "WHERE ur.user.id IN :userIds AND ur.role.id = :roleId AND ur.activeFlag = false")
+    int activateRole(@Param("userIds") Collection<Integer> userIds,
+                     @Param("roleId") Integer roleId,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Links the role to each of the users that does not have it yet, in one statement.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO UserRole (userId, roleId, activeFlag, createDate, lastModificationDate) " +
+            "SELECT u.id, :roleId, true, :now, :now FROM User u " +
+            "LEFT JOIN UserRole ur ON ur.userId = u.id AND ur.roleId = :roleId " +
+            "WHERE u.id IN :userIds AND ur.id IS NULL", nativeQuery = true)
+    int insertMissingRole(@Param("userIds") Collection<Integer> userIds,
+                          @Param("roleId") Integer roleId,
+                          @Param("now") LocalDateTime now);
+
     @Query("SELECT COUNT(ur) FROM UserRole ur WHERE ur.user.id = :userId AND ur.activeFlag = true")
     long countActiveRolesByUserId(@Param("userId") Integer userId);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package org.beaconfire.authentication.repository.projection;
+
+/**
+ * One row of a credential lookup: the user's login fields and one of their active role names.
+ * A user without active roles has a single row with a null role name.
+ */
+public interface UserCredentialRow {
+    Integer getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    String getPassword();
+
+    Boolean getActiveFlag();
+
+    String getRoleName();
+}
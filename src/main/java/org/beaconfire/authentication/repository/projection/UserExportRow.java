@@ -0,0 +1,20 @@
+package org.beaconfire.authentication.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user and one of their active role names, or null if they have none.
+ */
+public interface UserExportRow {
+    Integer getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    Boolean getActiveFlag();
+
+    LocalDateTime getCreateDate();
+
+    String getRoleName();
+}
@@ -0,0 +1,7 @@
+package org.beaconfire.authentication.repository.projection;
+
+public interface UserIdRow {
+    Integer getId();
+
+    String getUsername();
+}
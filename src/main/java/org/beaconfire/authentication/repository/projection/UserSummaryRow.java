@@ -0,0 +1,12 @@
+package org.beaconfire.authentication.repository.projection;
+
+/**
+ * A user in the admin listing, with one of their active role names or null.
+ */
+public interface UserSummaryRow {
+    Integer getId();
+
+    String getUsername();
+
+    String getRoleName();
+}
@@ -0,0 +1,11 @@
+package org.beaconfire.authentication.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface UserTokenEpoch {
+    String getUsername();
+
+    Boolean getActiveFlag();
+
+    LocalDateTime getTokensValidAfter();
+}
@@ -1,5 +1,6 @@
 package org.beaconfire.authentication.scheduler;
 
+import org.beaconfire.authentication.service.RefreshTokenService;
 import org.beaconfire.authentication.service.RegistrationTokenService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -8,9 +9,11 @@ import org.springframework.stereotype.Component;
 public class TokenCleanupScheduler {
 
     private final RegistrationTokenService tokenService;
+    private final RefreshTokenService refreshTokenService;
 
-    public TokenCleanupScheduler(RegistrationTokenService tokenService) {
+    public TokenCleanupScheduler(RegistrationTokenService tokenService, RefreshTokenService refreshTokenService) {
         this.tokenService = tokenService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     // Clean up expired tokens every day at 2 AM
@@ -18,4 +21,10 @@ public class TokenCleanupScheduler {
     public void cleanupExpiredTokens() {
         tokenService.cleanupExpiredTokens();
     }
+
+    // Clean up expired refresh tokens every day at 2:30 AM
+    @Scheduled(cron = "0 30 2 * * *")
+    public void cleanupExpiredRefreshTokens() {
+        refreshTokenService.cleanupExpiredTokens();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package org.beaconfire.authentication.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.ECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Creates the key pairs for the asymmetric JWS algorithms the key ring supports.
+ * EdDSA uses Ed25519, which needs Java 15 or later.
+ */
+public final class AsymmetricKeys {
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+
+    private AsymmetricKeys() {
+    }
+
+    public static boolean isAsymmetric(String algorithm) {
+        return ES256.equals(algorithm) || EDDSA.equals(algorithm);
+    }
+
+    /**
+     * Generates a new key pair. It only exists on this node, so it suits tests and single-node setups.
+     *
+     * @param algorithm {@code ES256} or {@code EdDSA}.
+     * @return The generated key pair.
+     */
+    public static KeyPair generate(String algorithm) {
+        if (ES256.equals(algorithm)) {
+            return Jwts.SIG.ES256.keyPair().build();
+        }
+        if (EDDSA.equals(algorithm)) {
+            return Jwks.CRV.Ed25519.keyPair().build();
+        }
+        throw new IllegalArgumentException("Unsupported asymmetric algorithm: " + algorithm);
+    }
+
+    /**
+     * Decodes a key pair from Base64 DER encodings. ES256 keys must be on the P-256 curve, and the
+     * private key must sign what the public key verifies.
+     *
+     * @param algorithm  {@code ES256} or {@code EdDSA}.
+     * @param privateKey The Base64 PKCS#8 encoded private key.
+     * @param publicKey  The Base64 X.509 encoded public key.
+     * @return The decoded key pair.
+     * @throws IllegalArgumentException if the keys cannot be decoded, are on another curve or do not belong together.
+     */
+    public static KeyPair decode(String algorithm, String privateKey, String publicKey) {
+        if (!StringUtils.hasText(privateKey) || !StringUtils.hasText(publicKey)) {
+            throw new IllegalArgumentException("Both the private and the public key are required for " + algorithm);
+        }
+        String keyAlgorithm;
+        String signatureAlgorithm;
+        if (ES256.equals(algorithm)) {
+            keyAlgorithm = "EC";
+            signatureAlgorithm = "SHA256withECDSA";
+        } else if (EDDSA.equals(algorithm)) {
+            keyAlgorithm = "Ed25519";
+            signatureAlgorithm = "Ed25519";
+        } else {
+            throw new IllegalArgumentException("Unsupported asymmetric algorithm: " + algorithm);
+        }
+        KeyPair keyPair;
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+            keyPair = new KeyPair(
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getMimeDecoder().decode(publicKey))),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(privateKey))));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + algorithm + " key pair: " + e.getMessage());
+        }
+        if (ES256.equals(algorithm) && !(isP256(keyPair.getPublic()) && isP256(keyPair.getPrivate()))) {
+            throw new IllegalArgumentException("ES256 keys must be on the P-256 curve");
+        }
+        if (!signsForPublicKey(keyPair, signatureAlgorithm)) {
+            throw new IllegalArgumentException("The " + algorithm + " private key does not match the public key");
+        }
+        return keyPair;
+    }
+
+    private static boolean isP256(Key key) {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            ECParameterSpec p256 = parameters.getParameterSpec(ECParameterSpec.class);
+            ECParameterSpec params = ((ECKey) key).getParams();
+            return params.getCurve().equals(p256.getCurve())
+                    && params.getGenerator().equals(p256.getGenerator())
+                    && params.getOrder().equals(p256.getOrder())
+                    && params.getCofactor() == p256.getCofactor();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("P-256 is not available", e);
+        }
+    }
+
+    // Signs a probe with the private key and verifies it with the public key
+    private static boolean signsForPublicKey(KeyPair keyPair, String signatureAlgorithm) {
+        byte[] probe = "key pair check".getBytes(StandardCharsets.US_ASCII);
+        try {
+            Signature signer = Signature.getInstance(signatureAlgorithm);
+            signer.initSign(keyPair.getPrivate());
+            signer.update(probe);
+            byte[] signature = signer.sign();
+            Signature verifier = Signature.getInstance(signatureAlgorithm);
+            verifier.initVerify(keyPair.getPublic());
+            verifier.update(probe);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
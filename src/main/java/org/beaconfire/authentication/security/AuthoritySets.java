@@ -0,0 +1,75 @@
+package org.beaconfire.authentication.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical authorities and authority sets.
+ * <p>
+ * There are only a handful of roles and role combinations, so each role name maps to one shared
+ * {@link SimpleGrantedAuthority} and each combination to one shared immutable set. A principal
+ * resolves its set once; checking its authorities afterwards allocates nothing. Past
+ * {@link #MAX_INTERNED} entries new values are built but not kept, so the tables stay bounded.
+ */
+final class AuthoritySets {
+    static final int MAX_INTERNED = 10_000;
+
+    private static final ConcurrentMap<String, SimpleGrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Set<String>, Set<GrantedAuthority>> SETS = new ConcurrentHashMap<>();
+
+    private AuthoritySets() {
+    }
+
+    /**
+     * @param roleName The role name, in any case.
+     * @return The shared authority for the upper-cased role name.
+     */
+    static SimpleGrantedAuthority authority(String roleName) {
+        String name = roleName.toUpperCase(Locale.ROOT);
+        SimpleGrantedAuthority authority = AUTHORITIES.get(name);
+        if (authority != null) {
+            return authority;
+        }
+        if (AUTHORITIES.size() >= MAX_INTERNED) {
+            return new SimpleGrantedAuthority(name);
+        }
+        return AUTHORITIES.computeIfAbsent(name, SimpleGrantedAuthority::new);
+    }
+
+    /**
+     * @param roleNames The role names, in any case and order, possibly repeated.
+     * @return The shared immutable set of authorities for that combination of roles.
+     */
+    static Set<GrantedAuthority> of(Collection<String> roleNames) {
+        if (roleNames.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new TreeSet<>();
+        for (String roleName : roleNames) {
+            names.add(roleName.toUpperCase(Locale.ROOT));
+        }
+        Set<GrantedAuthority> authorities = SETS.get(names);
+        if (authorities != null) {
+            return authorities;
+        }
+        Set<GrantedAuthority> built = new LinkedHashSet<>();
+        for (String name : names) {
+            built.add(authority(name));
+        }
+        authorities = Collections.unmodifiableSet(built);
+        if (SETS.size() >= MAX_INTERNED) {
+            return authorities;
+        }
+        Set<GrantedAuthority> existing = SETS.putIfAbsent(Collections.unmodifiableSet(names), authorities);
+        return existing != null ? existing : authorities;
+    }
+}
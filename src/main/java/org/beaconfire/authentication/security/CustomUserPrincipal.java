@@ -1,30 +1,97 @@
 package org.beaconfire.authentication.security;
 
+import org.beaconfire.authentication.model.Role;
 import org.beaconfire.authentication.model.User;
 import org.beaconfire.authentication.model.UserRole;
+import org.beaconfire.authentication.repository.projection.UserCredentialRow;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class CustomUserPrincipal implements UserDetails {
 
     private final User user;
+    // Resolved once from the active roles, shared with every principal that has the same roles
+    private final Set<GrantedAuthority> authorities;
 
     public CustomUserPrincipal(User user) {
         this.user = user;
+        this.authorities = AuthoritySets.of(user.getUserRoles().stream()
+                .filter(UserRole::isActiveRole)
+                .map(UserRole::getRoleName)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Builds a principal from the claims of a verified token, without loading the user.
+     * The returned user is detached and has no password.
+     */
+    public static CustomUserPrincipal fromClaims(Integer id, String username, String email, Collection<String> roleNames) {
+        User user = User.builder()
+                .id(id)
+                .username(username)
+                .email(email)
+                .activeFlag(true)
+                .build();
+        for (String roleName : roleNames) {
+            user.getUserRoles().add(UserRole.builder()
+                    .user(user)
+                    .role(Role.builder().roleName(roleName).build())
+                    .activeFlag(true)
+                    .build());
+        }
+        return new CustomUserPrincipal(user);
+    }
+
+    /**
+     * Builds a principal from the rows of a credential lookup. The returned user is detached and
+     * holds the active roles only.
+     *
+     * @return The principal, or null if there are no rows.
+     */
+    public static CustomUserPrincipal fromCredentials(List<UserCredentialRow> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        UserCredentialRow first = rows.get(0);
+        User user = User.builder()
+                .id(first.getId())
+                .username(first.getUsername())
+                .email(first.getEmail())
+                .password(first.getPassword())
+                .activeFlag(first.getActiveFlag())
+                .build();
+        for (UserCredentialRow row : rows) {
+            if (row.getRoleName() != null) {
+                user.getUserRoles().add(UserRole.builder()
+                        .user(user)
+                        .role(Role.builder().roleName(row.getRoleName()).build())
+                        .activeFlag(true)
+                        .build());
+            }
+        }
+        return new CustomUserPrincipal(user);
+    }
+
+    /**
+     * Copies a loaded user into a detached principal that can be cached and shared between
+     * threads. The copy holds the active roles only, and no password or lazy associations.
+     */
+    public static CustomUserPrincipal snapshot(User user) {
+        List<String> roleNames = user.getUserRoles().stream()
+                .filter(UserRole::isActiveRole)
+                .map(UserRole::getRoleName)
+                .collect(Collectors.toList());
+        return fromClaims(user.getId(), user.getUsername(), user.getEmail(), roleNames);
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        Set<UserRole> userRoles = user.getUserRoles();
-        return userRoles.stream()
-                .filter(UserRole::isActiveRole)
-                .map(userRole -> new SimpleGrantedAuthority(userRole.getRoleName().toUpperCase()))
-                .collect(Collectors.toSet());
+        return authorities;
     }
 
     @Override
@@ -0,0 +1,477 @@
+package org.beaconfire.authentication.security;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Verifies the HS256 tokens this service issues without going through JJWT.
+ * <p>
+ * The token is Base64URL decoded into pooled buffers, signed with a pooled {@link Mac}
+ * and compared in constant time. Only the claims {@link ParsedToken} needs are read, by a scanner
+ * that understands the flat JSON this service writes. Nothing is thrown for a bad token.
+ * <p>
+ * {@link #verify} returns null for any token that does not have that shape, for example another
+ * algorithm, an unknown header, escaped strings, nested claims or a {@code nbf} claim. The caller
+ * then falls back to the JJWT parser, which handles every case.
+ */
+class Hs256FastVerifier {
+    private static final String ALGORITHM = "HS256";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final int ENCODED_SIGNATURE_LENGTH = 43;
+    // Longer tokens are left to JJWT rather than growing the buffers
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private static final byte[] ALG = ascii("alg");
+    private static final byte[] KID = ascii("kid");
+    private static final byte[] TYP = ascii("typ");
+    private static final byte[] JTI = ascii("jti");
+    private static final byte[] SUB = ascii("sub");
+    private static final byte[] USERNAME = ascii("username");
+    private static final byte[] EMAIL = ascii("email");
+    private static final byte[] ROLES = ascii("roles");
+    private static final byte[] IAT = ascii("iat");
+    private static final byte[] EXP = ascii("exp");
+    private static final byte[] NBF = ascii("nbf");
+    private static final byte[] HS256 = ascii(ALGORITHM);
+
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final ConcurrentMap<Key, ObjectPool<Mac>> macs = new ConcurrentHashMap<>();
+    private final ObjectPool<Buffers> buffers = new ObjectPool<>(Buffers::new);
+
+    /**
+     * @param keyRing The keys to verify against.
+     * @param token   The JWT string.
+     * @return The parsed token, an invalid result if the signature does not match or the token
+     * has expired, or null if the token has to go through JJWT.
+     */
+    ParsedToken verify(JwtKeyRing keyRing, String token) {
+        Buffers buffer = buffers.borrow();
+        try {
+            return verify(keyRing, token, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Drops the pooled {@link Mac} instances of a key that left the ring.
+     *
+     * @param key The verification key of the retired entry.
+     */
+    void forget(Key key) {
+        macs.remove(key);
+    }
+
+    private ParsedToken verify(JwtKeyRing keyRing, String token, Buffers buffer) {
+        int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || length - secondDot - 1 != ENCODED_SIGNATURE_LENGTH) {
+            return null;
+        }
+        JsonScanner json = buffer.json;
+
+        // Header
+        int headerLength = decode(token, 0, firstDot, buffer.data);
+        if (headerLength < 0) {
+            return null;
+        }
+        json.reset(buffer.data, headerLength);
+        String keyId = null;
+        boolean hs256 = false;
+        if (!json.consume('{')) {
+            return null;
+        }
+        do {
+            if (!json.readString() || !json.consume(':')) {
+                return null;
+            }
+            if (json.stringEquals(ALG)) {
+                if (!json.readString()) {
+                    return null;
+                }
+                hs256 = json.stringEquals(HS256);
+            } else if (json.stringEquals(KID)) {
+                if (!json.readString()) {
+                    return null;
+                }
+                keyId = json.string();
+            } else if (!json.stringEquals(TYP) || !json.readString()) {
+                return null;
+            }
+        } while (json.consume(','));
+        if (!json.consume('}') || !json.atEnd() || !hs256) {
+            return null;
+        }
+        JwtKeyRing.KeyEntry entry = keyRing.findKey(keyId);
+        if (entry == null || !(entry.getVerificationKey() instanceof SecretKey)
+                || !MAC_ALGORITHM.equals(entry.getVerificationKey().getAlgorithm())) {
+            return null;
+        }
+
+        // Signature
+        if (decode(token, secondDot + 1, length, buffer.signature) != SIGNATURE_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < secondDot; i++) {
+            // The payload is only decoded once the signature matches, so its chars are not checked yet
+            char c = token.charAt(i);
+            if (c >= 128) {
+                return null;
+            }
+            buffer.signingInput[i] = (byte) c;
+        }
+        ObjectPool<Mac> macPool = macs.computeIfAbsent(entry.getVerificationKey(), Hs256FastVerifier::macPool);
+        Mac mac = macPool.borrow();
+        try {
+            mac.update(buffer.signingInput, 0, secondDot);
+            mac.doFinal(buffer.expected, 0);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+        macPool.release(mac);
+        if (!MessageDigest.isEqual(buffer.expected, buffer.signature)) {
+            return ParsedToken.invalid(TokenFailureReason.INVALID_SIGNATURE);
+        }
+
+        // Payload
+        int payloadLength = decode(token, firstDot + 1, secondDot, buffer.data);
+        if (payloadLength < 0) {
+            return null;
+        }
+        return readClaims(json, buffer.data, payloadLength);
+    }
+
+    private static ParsedToken readClaims(JsonScanner json, byte[] payload, int payloadLength) {
+        json.reset(payload, payloadLength);
+        String tokenId = null;
+        String subject = null;
+        String username = null;
+        String email = null;
+        List<String> roles = Collections.emptyList();
+        Date issuedAt = null;
+        Date expiration = null;
+        if (!json.consume('{')) {
+            return null;
+        }
+        if (!json.consume('}')) {
+            do {
+                if (!json.readString() || !json.consume(':')) {
+                    return null;
+                }
+                if (json.stringEquals(JTI)) {
+                    if (!json.readString()) {
+                        return null;
+                    }
+                    tokenId = json.string();
+                } else if (json.stringEquals(SUB)) {
+                    if (!json.readString()) {
+                        return null;
+                    }
+                    subject = json.string();
+                } else if (json.stringEquals(USERNAME)) {
+                    if (!json.readString()) {
+                        return null;
+                    }
+                    username = json.string();
+                } else if (json.stringEquals(EMAIL)) {
+                    if (!json.readString()) {
+                        return null;
+                    }
+                    email = json.string();
+                } else if (json.stringEquals(IAT)) {
+                    if (!json.readLong()) {
+                        return null;
+                    }
+                    issuedAt = new Date(json.number() * 1000);
+                } else if (json.stringEquals(EXP)) {
+                    if (!json.readLong()) {
+                        return null;
+                    }
+                    expiration = new Date(json.number() * 1000);
+                } else if (json.stringEquals(ROLES)) {
+                    roles = readStrings(json);
+                    if (roles == null) {
+                        return null;
+                    }
+                } else if (json.stringEquals(NBF) || !json.skipValue()) {
+                    return null;
+                }
+            } while (json.consume(','));
+            if (!json.consume('}')) {
+                return null;
+            }
+        }
+        if (!json.atEnd()) {
+            return null;
+        }
+        // Same check as JJWT without clock skew: expired once the current time is past exp
+        if (expiration != null && System.currentTimeMillis() > expiration.getTime()) {
+            return ParsedToken.invalid(TokenFailureReason.EXPIRED);
+        }
+
+        Integer userId = null;
+        if (username == null) {
+            username = subject;
+        } else if (subject != null && isDigits(subject)) {
+            if (subject.length() > 9) {
+                // Might not fit an Integer, leave it to JJWT
+                return null;
+            }
+            userId = Integer.valueOf(subject);
+        }
+        return ParsedToken.builder()
+                .tokenId(tokenId)
+                .subject(subject)
+                .userId(userId)
+                .username(username)
+                .email(email)
+                .roles(roles)
+                .issuedAt(issuedAt)
+                .expiration(expiration)
+                .build();
+    }
+
+    private static List<String> readStrings(JsonScanner json) {
+        if (!json.consume('[')) {
+            return null;
+        }
+        if (json.consume(']')) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(4);
+        do {
+            if (!json.readString()) {
+                return null;
+            }
+            values.add(json.string());
+        } while (json.consume(','));
+        return json.consume(']') ? Collections.unmodifiableList(values) : null;
+    }
+
+    private static boolean isDigits(String subject) {
+        int length = subject.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = subject.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes unpadded Base64URL chars {@code [start, end)} of the token into {@code out}.
+     *
+     * @return The number of bytes written, or -1 if the chars are not canonical Base64URL or {@code out} is too small.
+     */
+    private static int decode(String token, int start, int end, byte[] out) {
+        int length = end - start;
+        if (length % 4 == 1 || (length / 4) * 3 + Math.max(0, length % 4 - 1) > out.length) {
+            return -1;
+        }
+        int written = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = start; i < end; i++) {
+            char c = token.charAt(i);
+            int value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        // Leftover bits must be zero, so each byte sequence has exactly one encoding
+        return (bits & ((1 << bitCount) - 1)) == 0 ? written : -1;
+    }
+
+    private static ObjectPool<Mac> macPool(Key key) {
+        return new ObjectPool<>(() -> {
+            try {
+                Mac mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+            }
+        });
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Buffers {
+        // Holds the decoded header, then the decoded payload
+        final byte[] data = new byte[MAX_TOKEN_LENGTH / 4 * 3];
+        final byte[] signingInput = new byte[MAX_TOKEN_LENGTH];
+        final byte[] signature = new byte[SIGNATURE_LENGTH];
+        final byte[] expected = new byte[SIGNATURE_LENGTH];
+        final JsonScanner json = new JsonScanner();
+    }
+
+    /**
+     * Reads flat JSON: strings without escapes, integers, literals and arrays of those.
+     * Every method returns false instead of throwing on anything else.
+     */
+    private static final class JsonScanner {
+        private byte[] in;
+        private int end;
+        private int pos;
+        private int stringStart;
+        private int stringEnd;
+        private long number;
+
+        void reset(byte[] in, int end) {
+            this.in = in;
+            this.end = end;
+            this.pos = 0;
+        }
+
+        boolean atEnd() {
+            skipWhitespace();
+            return pos == end;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < end && in[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean readString() {
+            if (!consume('"')) {
+                return false;
+            }
+            int start = pos;
+            while (pos < end) {
+                byte b = in[pos];
+                if (b == '"') {
+                    stringStart = start;
+                    stringEnd = pos++;
+                    return true;
+                }
+                if (b == '\\' || (b >= 0 && b < 0x20)) {
+                    return false;
+                }
+                pos++;
+            }
+            return false;
+        }
+
+        boolean stringEquals(byte[] expected) {
+            if (stringEnd - stringStart != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (in[stringStart + i] != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String string() {
+            return new String(in, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8);
+        }
+
+        boolean readLong() {
+            skipWhitespace();
+            int start = pos;
+            long value = 0;
+            while (pos < end && in[pos] >= '0' && in[pos] <= '9') {
+                if (pos - start >= 15) {
+                    return false;
+                }
+                value = value * 10 + (in[pos++] - '0');
+            }
+            if (pos == start || (pos < end && (in[pos] == '.' || in[pos] == 'e' || in[pos] == 'E'))) {
+                return false;
+            }
+            number = value;
+            return true;
+        }
+
+        long number() {
+            return number;
+        }
+
+        boolean skipValue() {
+            skipWhitespace();
+            if (pos >= end) {
+                return false;
+            }
+            byte b = in[pos];
+            if (b == '"') {
+                return readString();
+            }
+            if (b == '[') {
+                pos++;
+                if (consume(']')) {
+                    return true;
+                }
+                do {
+                    skipWhitespace();
+                    if (pos >= end || in[pos] == '[' || in[pos] == '{' || !skipValue()) {
+                        return false;
+                    }
+                } while (consume(','));
+                return consume(']');
+            }
+            if (b == '{') {
+                return false;
+            }
+            int start = pos;
+            while (pos < end && (isLetter(in[pos]) || (in[pos] >= '0' && in[pos] <= '9')
+                    || in[pos] == '-' || in[pos] == '+' || in[pos] == '.')) {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        private static boolean isLetter(byte b) {
+            return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z';
+        }
+
+        private void skipWhitespace() {
+            while (pos < end && (in[pos] == ' ' || in[pos] == '\t' || in[pos] == '\n' || in[pos] == '\r')) {
+                pos++;
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package org.beaconfire.authentication.security;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import org.beaconfire.authentication.service.CustomUserDetailsService;
+import org.beaconfire.authentication.service.TokenEpochService;
+import org.beaconfire.authentication.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,11 +20,18 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private JwtTokenProvider tokenProvider;
-    private CustomUserDetailsService userDetailsService;
+    private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenEpochService tokenEpochService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Build the principal from the token claims instead of loading the user
+    @Value("${app.jwt.stateless.enabled:false}")
+    private boolean statelessAuthentication;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -29,15 +39,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJWT(jwt);
+            if (StringUtils.hasText(jwt)) {
+                VerifiedTokenCache.Entry verified = verifiedTokenCache.get(jwt);
+                if (verified == null) {
+                    ParsedToken token = tokenProvider.parseToken(jwt);
+                    if (token.isValid()) {
+                        UserDetails userDetails = statelessAuthentication
+                                ? CustomUserPrincipal.fromClaims(
+                                        token.getUserId(), token.getUsername(), token.getEmail(), token.getRoles())
+                                : userDetailsService.loadAuthenticatedUser(token.getUsername());
+                        verified = verifiedTokenCache.put(jwt,
+                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()),
+                                token);
+                    }
+                }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (verified != null && isCurrent(verified)) {
+                    // The cached authentication is shared, so request details go on a copy
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            verified.getAuthentication().getPrincipal(), null,
+                            verified.getAuthentication().getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -46,6 +71,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Revocation is checked on every request, cached or not
+    private boolean isCurrent(VerifiedTokenCache.Entry verified) {
+        ParsedToken token = verified.getParsedToken();
+        return !tokenRevocationService.isRevoked(token.getTokenId())
+                && tokenEpochService.isTokenCurrent(verified.getAuthentication().getName(), token.getIssuedAt());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -53,4 +85,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package org.beaconfire.authentication.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Set of keys used to sign and verify JWTs, indexed by the {@code kid} header.
+ * <p>
+ * Every key is decoded once when it is added, and a single parser resolves the verification key
+ * from the ring, so nothing is rebuilt per request. The active key signs new tokens; every other
+ * key in the ring still verifies tokens it signed earlier. A rotation without downtime is:
+ * {@link #addKey} the new key on every node, {@link #promoteKey} it, then {@link #retireKey} the
+ * old one once the tokens it signed have expired.
+ * <p>
+ * Tokens issued before key ids were introduced carry no {@code kid}; they are verified with the
+ * key the ring was created with, for as long as that key stays in the ring.
+ * <p>
+ * The public halves of asymmetric keys are published as a JWK set, so other services can verify
+ * tokens without calling this one.
+ */
+@Slf4j
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    private final ConcurrentMap<String, KeyEntry> keys = new ConcurrentHashMap<>();
+    private final String legacyKeyId;
+    private final JwtParser parser;
+    private volatile KeyEntry activeKey;
+    private volatile PublishedKeys publishedKeys;
+
+    public JwtKeyRing(String keyId, String base64Secret) {
+        KeyEntry initial = hmacEntry(keyId, base64Secret);
+        this.keys.put(keyId, initial);
+        this.activeKey = initial;
+        this.legacyKeyId = keyId;
+        this.parser = Jwts.parser().keyLocator(this).build();
+    }
+
+    /**
+     * Adds a verification key to the ring. The key does not sign anything until it is promoted.
+     *
+     * @param keyId        The {@code kid} that identifies the key.
+     * @param base64Secret The Base64 encoded HMAC secret.
+     */
+    public synchronized void addKey(String keyId, String base64Secret) {
+        KeyEntry entry = hmacEntry(keyId, base64Secret);
+        if (keys.putIfAbsent(keyId, entry) != null) {
+            throw new IllegalArgumentException("Signing key '" + keyId + "' already exists.");
+        }
+        publishedKeys = null;
+        log.info("Added JWT signing key '{}'", keyId);
+    }
+
+    /**
+     * Adds an asymmetric verification key to the ring and publishes its public key.
+     * The key does not sign anything until it is promoted.
+     *
+     * @param keyId     The {@code kid} that identifies the key.
+     * @param keyPair   The key pair, see {@link AsymmetricKeys}.
+     * @param algorithm The JWS algorithm of the key pair.
+     */
+    public synchronized void addKey(String keyId, KeyPair keyPair, String algorithm) {
+        requireKeyId(keyId);
+        KeyEntry entry = new KeyEntry(keyId, keyPair.getPrivate(), keyPair.getPublic(), algorithm);
+        if (keys.putIfAbsent(keyId, entry) != null) {
+            throw new IllegalArgumentException("Signing key '" + keyId + "' already exists.");
+        }
+        publishedKeys = null;
+        log.info("Added {} JWT signing key '{}'", algorithm, keyId);
+    }
+
+    /**
+     * Makes an existing key the one used to sign new tokens.
+     *
+     * @param keyId The {@code kid} of the key to promote.
+     */
+    public synchronized void promoteKey(String keyId) {
+        this.activeKey = requireKey(keyId);
+        log.info("Promoted JWT signing key '{}'", keyId);
+    }
+
+    /**
+     * Removes a key from the ring. Tokens signed with it no longer pass signature verification, but
+     * tokens that already passed it stay accepted while {@link VerifiedTokenCache} holds them, so
+     * that cache has to be invalidated as well.
+     *
+     * @param keyId The {@code kid} of the key to retire.
+     * @return The retired key.
+     */
+    public synchronized KeyEntry retireKey(String keyId) {
+        KeyEntry entry = requireKey(keyId);
+        if (entry == activeKey) {
+            throw new IllegalArgumentException("Signing key '" + keyId + "' is active and cannot be retired.");
+        }
+        keys.remove(keyId, entry);
+        publishedKeys = null;
+        log.info("Retired JWT signing key '{}'", keyId);
+        return entry;
+    }
+
+    public KeyEntry getActiveKey() {
+        return activeKey;
+    }
+
+    public Set<String> getKeyIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(keys.keySet()));
+    }
+
+    /**
+     * The public keys of the ring as a JWK set, rebuilt only when keys are added or retired.
+     */
+    public PublishedKeys getPublishedKeys() {
+        PublishedKeys published = publishedKeys;
+        if (published == null) {
+            synchronized (this) {
+                if (publishedKeys == null) {
+                    publishedKeys = publishKeys();
+                }
+                published = publishedKeys;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * The shared parser. JJWT parsers are immutable and safe to use from any thread.
+     */
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    /**
+     * @param keyId The {@code kid} header of a token, or null if it has none.
+     * @return The key that verifies the token, or null if it is not in the ring.
+     */
+    public KeyEntry findKey(String keyId) {
+        return keys.get(StringUtils.hasText(keyId) ? keyId : legacyKeyId);
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        KeyEntry entry = findKey(header.getKeyId());
+        if (entry == null) {
+            throw new SignatureException("Unknown JWT signing key '" + header.getKeyId() + "'.");
+        }
+        return entry.getVerificationKey();
+    }
+
+    private KeyEntry requireKey(String keyId) {
+        KeyEntry entry = keys.get(keyId);
+        if (entry == null) {
+            throw new IllegalArgumentException("Signing key '" + keyId + "' does not exist.");
+        }
+        return entry;
+    }
+
+    private PublishedKeys publishKeys() {
+        StringBuilder json = new StringBuilder("{\"keys\":[");
+        boolean first = true;
+        for (KeyEntry entry : new TreeMap<>(keys).values()) {
+            if (entry.getVerificationKey() instanceof PublicKey) {
+                PublicJwk<?> jwk = Jwks.builder()
+                        .key((PublicKey) entry.getVerificationKey())
+                        .id(entry.getKeyId())
+                        .algorithm(entry.getAlgorithm())
+                        .publicKeyUse("sig")
+                        .build();
+                if (!first) {
+                    json.append(',');
+                }
+                json.append(Jwks.json(jwk));
+                first = false;
+            }
+        }
+        String body = json.append("]}").toString();
+        return new PublishedKeys(body, "\"" + TokenDigests.sha256(body) + "\"");
+    }
+
+    private static void requireKeyId(String keyId) {
+        if (!StringUtils.hasText(keyId)) {
+            throw new IllegalArgumentException("Signing key id must not be empty.");
+        }
+    }
+
+    private static KeyEntry hmacEntry(String keyId, String base64Secret) {
+        requireKeyId(keyId);
+        try {
+            Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
+            return new KeyEntry(keyId, key, key, "HS256");
+        } catch (JwtException e) {
+            throw new IllegalArgumentException("Invalid secret for signing key '" + keyId + "': " + e.getMessage());
+        }
+    }
+
+    @Getter
+    public static final class KeyEntry {
+        private final String keyId;
+        private final Key signingKey;
+        private final Key verificationKey;
+        private final String algorithm;
+
+        private KeyEntry(String keyId, Key signingKey, Key verificationKey, String algorithm) {
+            this.keyId = keyId;
+            this.signingKey = signingKey;
+            this.verificationKey = verificationKey;
+            this.algorithm = algorithm;
+        }
+    }
+
+    @Getter
+    public static final class PublishedKeys {
+        private final String json;
+        private final String eTag;
+
+        private PublishedKeys(String json, String eTag) {
+            this.json = json;
+            this.eTag = eTag;
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package org.beaconfire.authentication.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import lombok.AccessLevel;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
-import java.security.Key;
+import javax.annotation.PostConstruct;
+import java.security.KeyPair;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 @Setter
@@ -21,12 +27,71 @@ import java.util.Map;
 public class JwtTokenProvider {
     @Value("${app.jwt.secret}")
     private String jwtSecret;
+    @Value("${app.jwt.key-id:default}")
+    private String jwtKeyId = "default";
     @Value("${app.jwt.expiration-in-ms}")
     private int jwtExpirationInMs;
+    // HS256, ES256 or EdDSA
+    @Value("${app.jwt.algorithm:HS256}")
+    private String jwtAlgorithm = "HS256";
+    @Value("${app.jwt.asymmetric.key-id:asymmetric-1}")
+    private String asymmetricKeyId = "asymmetric-1";
+    @Value("${app.jwt.asymmetric.private-key:}")
+    private String asymmetricPrivateKey;
+    @Value("${app.jwt.asymmetric.public-key:}")
+    private String asymmetricPublicKey;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(this.jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Verifies this service's own HS256 tokens without JJWT, see Hs256FastVerifier
+    @Value("${app.jwt.fast-path.enabled:true}")
+    private boolean fastPathEnabled = true;
+
+    @Setter(AccessLevel.NONE)
+    private volatile JwtKeyRing keyRing;
+    private final Hs256FastVerifier fastVerifier = new Hs256FastVerifier();
+
+    public void setJwtSecret(String jwtSecret) {
+        this.jwtSecret = jwtSecret;
+        this.keyRing = null;
+    }
+
+    // Builds the key ring at startup, so a bad key configuration stops the service from starting
+    @PostConstruct
+    public void init() {
+        getKeyRing();
+    }
+
+    /**
+     * Returns the key ring, building it from the configured keys on first use.
+     * With an asymmetric algorithm the HMAC secret stays in the ring to verify tokens issued before the switch.
+     *
+     * @return The key ring used to sign and verify tokens.
+     */
+    public JwtKeyRing getKeyRing() {
+        JwtKeyRing ring = keyRing;
+        if (ring == null) {
+            synchronized (this) {
+                ring = keyRing;
+                if (ring == null) {
+                    ring = new JwtKeyRing(jwtKeyId, jwtSecret);
+                    if (AsymmetricKeys.isAsymmetric(jwtAlgorithm)) {
+                        ring.addKey(asymmetricKeyId, asymmetricKeyPair(), jwtAlgorithm);
+                        ring.promoteKey(asymmetricKeyId);
+                    } else if (!"HS256".equals(jwtAlgorithm)) {
+                        throw new IllegalStateException("Unsupported JWT algorithm: " + jwtAlgorithm);
+                    }
+                    keyRing = ring;
+                }
+            }
+        }
+        return ring;
+    }
+
+    private KeyPair asymmetricKeyPair() {
+        if (StringUtils.hasText(asymmetricPrivateKey) && StringUtils.hasText(asymmetricPublicKey)) {
+            return AsymmetricKeys.decode(jwtAlgorithm, asymmetricPrivateKey, asymmetricPublicKey);
+        }
+        log.warn("No {} key pair configured, generating one. Other nodes will not accept its tokens.", jwtAlgorithm);
+        return AsymmetricKeys.generate(jwtAlgorithm);
     }
 
     /**
@@ -37,51 +102,124 @@ public class JwtTokenProvider {
      */
     public String generateToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        JwtKeyRing.KeyEntry signingKey = getKeyRing().getActiveKey();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
         return Jwts.builder()
+                .header().keyId(signingKey.getKeyId()).and()
+                .id(UUID.randomUUID().toString())
                 .subject(userPrincipal.getUsername())
                 .issuedAt(new Date())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey.getSigningKey())
+                .compact();
+    }
+
+    /**
+     * Retires a key of the ring, see {@link JwtKeyRing#retireKey}, and drops what the fast path
+     * pooled for it.
+     *
+     * @param keyId The {@code kid} of the key to retire.
+     */
+    public void retireKey(String keyId) {
+        JwtKeyRing.KeyEntry entry = getKeyRing().retireKey(keyId);
+        fastVerifier.forget(entry.getVerificationKey());
+    }
+
+    /**
+     * Generates a login JWT, with the user id as subject and the username, email and roles as claims.
+     *
+     * @param userId   The user id.
+     * @param username The username.
+     * @param email    The email, omitted if null.
+     * @param roles    The role names.
+     * @return A JWT string.
+     */
+    public String generateToken(Integer userId, String username, String email, Collection<String> roles) {
+        JwtKeyRing.KeyEntry signingKey = getKeyRing().getActiveKey();
+        long now = System.currentTimeMillis();
+
+        return Jwts.builder()
+                .header().keyId(signingKey.getKeyId()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(String.valueOf(userId))
+                .claim("username", username)
+                .claim("email", email)
+                .claim("roles", roles)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + jwtExpirationInMs))
+                .signWith(signingKey.getSigningKey())
                 .compact();
     }
 
     // Get username from JWT token
     public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret)))
-                .build()
+        return getKeyRing().getParser()
                 .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+                .getPayload()
+                .getSubject();
     }
 
     // Validate JWT token
     public boolean validateToken(String token) {
+        return parseToken(token).isValid();
+    }
+
+    /**
+     * Verifies the signature and parses the claims of a JWT in a single pass.
+     * HS256 tokens in the shape this service issues take the fast path; everything else goes through JJWT.
+     *
+     * @param token The JWT string.
+     * @return The parsed claims, or the reason the token was rejected.
+     */
+    public ParsedToken parseToken(String token) {
+        if (!StringUtils.hasText(token)) {
+            return ParsedToken.invalid(TokenFailureReason.MISSING);
+        }
+        JwtKeyRing ring = getKeyRing();
+        if (fastPathEnabled) {
+            ParsedToken parsed = fastVerifier.verify(ring, token);
+            if (parsed != null) {
+                if (!parsed.isValid()) {
+                    log.error("Invalid JWT token: {}", parsed.getFailureReason());
+                }
+                return parsed;
+            }
+        }
         try {
-            Jwts.parser()
-                    .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret)))
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            Claims claims = ring.getParser()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            return ParsedToken.fromClaims(claims);
+        } catch (ExpiredJwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return ParsedToken.invalid(TokenFailureReason.EXPIRED);
+        } catch (SecurityException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return ParsedToken.invalid(TokenFailureReason.INVALID_SIGNATURE);
+        } catch (UnsupportedJwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return ParsedToken.invalid(TokenFailureReason.UNSUPPORTED);
         } catch (Exception e) {
             log.error("Invalid JWT token: {}", e.getMessage());
+            return ParsedToken.invalid(TokenFailureReason.MALFORMED);
         }
-        return false;
     }
 
     public String generateTokenWithClaims(Map<String, Object> claims) {
+        JwtKeyRing.KeyEntry signingKey = getKeyRing().getActiveKey();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
+        claims.putIfAbsent("jti", UUID.randomUUID().toString());
         claims.putIfAbsent("iat", now.getTime() / 1000);
         claims.putIfAbsent("exp", expiryDate.getTime() / 1000);
         return Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .header().keyId(signingKey.getKeyId()).and()
+                .claims(claims)
+                .issuedAt(now)
+                .expiration(expiryDate)
+                .signWith(signingKey.getSigningKey())
                 .compact();
     }
 }
@@ -0,0 +1,109 @@
+package org.beaconfire.authentication.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.beaconfire.authentication.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits login attempts per username and per client IP, before any password is checked.
+ * <p>
+ * Each key has a token bucket of {@code capacity} attempts that refills completely every
+ * {@code refill-period-in-ms}. The bucket is kept as a single {@link AtomicLong} holding the time at
+ * which it will be full again (the GCRA form of a token bucket), so an attempt is one CAS and no
+ * lock is taken. Buckets that have not been touched for {@code idle-eviction-in-ms} are evicted.
+ */
+@Component
+public class LoginThrottle {
+    private final boolean enabled;
+    private final Limiter usernameLimiter;
+    private final Limiter ipLimiter;
+    private final Counter usernameRejections;
+    private final Counter ipRejections;
+
+    public LoginThrottle(@Value("${app.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${app.login-throttle.username.capacity:10}") int usernameCapacity,
+                         @Value("${app.login-throttle.username.refill-period-in-ms:60000}") long usernameRefillMs,
+                         @Value("${app.login-throttle.ip.capacity:50}") int ipCapacity,
+                         @Value("${app.login-throttle.ip.refill-period-in-ms:60000}") long ipRefillMs,
+                         @Value("${app.login-throttle.idle-eviction-in-ms:600000}") long idleEvictionMs,
+                         @Value("${app.login-throttle.maximum-keys:100000}") long maximumKeys,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.usernameLimiter = new Limiter(usernameCapacity, usernameRefillMs, idleEvictionMs, maximumKeys);
+        this.ipLimiter = new Limiter(ipCapacity, ipRefillMs, idleEvictionMs, maximumKeys);
+        this.usernameRejections = Counter.builder("login.throttled").tag("key", "username").register(meterRegistry);
+        this.ipRejections = Counter.builder("login.throttled").tag("key", "ip").register(meterRegistry);
+    }
+
+    /**
+     * Takes one attempt from the username's and the client's buckets.
+     *
+     * @param username The username being logged in, may be null.
+     * @param clientIp The client address.
+     * @throws TooManyRequestsException if either bucket is empty.
+     */
+    public void acquire(String username, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waitNanos = clientIp == null ? 0 : ipLimiter.tryAcquire(clientIp, now);
+        if (waitNanos > 0) {
+            ipRejections.increment();
+            throw rejection(waitNanos);
+        }
+        waitNanos = username == null ? 0 : usernameLimiter.tryAcquire(username.toLowerCase(Locale.ROOT), now);
+        if (waitNanos > 0) {
+            usernameRejections.increment();
+            throw rejection(waitNanos);
+        }
+    }
+
+    private static TooManyRequestsException rejection(long waitNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        return new TooManyRequestsException("Too many login attempts, please try again later.", retryAfterSeconds);
+    }
+
+    static final class Limiter {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+
+        Limiter(int capacity, long refillPeriodMs, long idleEvictionMs, long maximumKeys) {
+            // Time for one attempt to be refilled, and for the whole bucket
+            this.intervalNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(refillPeriodMs) / Math.max(1, capacity));
+            this.burstNanos = intervalNanos * Math.max(1, capacity);
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(idleEvictionMs, TimeUnit.MILLISECONDS)
+                    .maximumSize(maximumKeys)
+                    .build();
+        }
+
+        /**
+         * @return 0 if the attempt was allowed, otherwise how long until the next one will be.
+         */
+        long tryAcquire(String key, long now) {
+            // A new bucket is full: it was full at the latest by now
+            AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long overdraft = next - now - burstNanos;
+                if (overdraft > 0) {
+                    return overdraft;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.beaconfire.authentication.security;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small lock-free pool of reusable, non thread-safe objects such as {@link javax.crypto.Mac}
+ * instances and scratch buffers.
+ * <p>
+ * Used instead of a {@link ThreadLocal} because on virtual threads every request has a thread of
+ * its own, so a thread-local would build a new instance per request and never reuse it. At most
+ * {@code maxIdle} instances are kept; any beyond that are left to the garbage collector.
+ */
+final class ObjectPool<T> {
+    // Pooled objects are held for a short, CPU-bound step, so few are in use at once
+    private static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final Supplier<T> factory;
+    private final int maxIdle;
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    ObjectPool(Supplier<T> factory) {
+        this(factory, DEFAULT_MAX_IDLE);
+    }
+
+    ObjectPool(Supplier<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    T borrow() {
+        T instance = idle.poll();
+        if (instance == null) {
+            return factory.get();
+        }
+        idleCount.decrementAndGet();
+        return instance;
+    }
+
+    void release(T instance) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
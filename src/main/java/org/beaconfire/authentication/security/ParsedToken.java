@@ -0,0 +1,75 @@
+package org.beaconfire.authentication.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The result of verifying and parsing a JWT once. Either the token is valid and the claims are
+ * populated, or {@link #getFailureReason()} says why it was rejected.
+ */
+@Value
+@Builder
+public class ParsedToken {
+    String tokenId;
+    String subject;
+    Integer userId;
+    String username;
+    String email;
+    @Builder.Default
+    List<String> roles = Collections.emptyList();
+    Date issuedAt;
+    Date expiration;
+    TokenFailureReason failureReason;
+
+    public boolean isValid() {
+        return failureReason == null;
+    }
+
+    public static ParsedToken invalid(TokenFailureReason failureReason) {
+        return ParsedToken.builder().failureReason(failureReason).build();
+    }
+
+    /**
+     * Login tokens carry the user id as subject and the username as a claim; other tokens carry
+     * the username as subject.
+     */
+    public static ParsedToken fromClaims(Claims claims) {
+        String subject = claims.getSubject();
+        String username = claims.get("username", String.class);
+        Integer userId = null;
+        if (username == null) {
+            username = subject;
+        } else if (subject != null && !subject.isEmpty() && subject.chars().allMatch(Character::isDigit)) {
+            userId = Integer.valueOf(subject);
+        }
+        return ParsedToken.builder()
+                .tokenId(claims.getId())
+                .subject(subject)
+                .userId(userId)
+                .username(username)
+                .email(claims.get("email", String.class))
+                .roles(rolesOf(claims))
+                .issuedAt(claims.getIssuedAt())
+                .expiration(claims.getExpiration())
+                .build();
+    }
+
+    private static List<String> rolesOf(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof Collection)) {
+            return Collections.emptyList();
+        }
+        List<String> roleNames = new ArrayList<>();
+        for (Object role : (Collection<?>) roles) {
+            roleNames.add(String.valueOf(role));
+        }
+        return Collections.unmodifiableList(roleNames);
+    }
+}
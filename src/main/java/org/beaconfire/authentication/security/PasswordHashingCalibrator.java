@@ -0,0 +1,84 @@
+package org.beaconfire.authentication.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Picks password hashing work factors from how fast this machine hashes.
+ * <p>
+ * The hash is timed once at a known cost and the cost is scaled to the latency budget: every
+ * BCrypt strength step doubles the time, every Argon2 iteration adds the time of one pass. The
+ * result is clamped to the configured bounds, so a slow node never drops below the minimum.
+ */
+@Slf4j
+public final class PasswordHashingCalibrator {
+    static final int ARGON2_SALT_LENGTH = 16;
+    static final int ARGON2_HASH_LENGTH = 32;
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private PasswordHashingCalibrator() {
+    }
+
+    /**
+     * @param budgetMs    The time one hash may take.
+     * @param minStrength The lowest strength to use, whatever the measurement says.
+     * @param maxStrength The highest strength to use.
+     * @return The highest BCrypt strength that hashes within the budget.
+     */
+    public static int bcryptStrength(long budgetMs, int minStrength, int maxStrength) {
+        long nanos = measure(new BCryptPasswordEncoder(minStrength));
+        int strength = bcryptStrength(nanos, minStrength, budgetMs * 1_000_000L, maxStrength);
+        log.info("BCrypt strength {} measured {} ms, using strength {} for a {} ms budget",
+                minStrength, nanos / 1_000_000, strength, budgetMs);
+        return strength;
+    }
+
+    /**
+     * @param budgetMs      The time one hash may take.
+     * @param memoryKb      The Argon2 memory cost, which stays fixed.
+     * @param parallelism   The Argon2 parallelism, which stays fixed.
+     * @param minIterations The fewest iterations to use, whatever the measurement says.
+     * @param maxIterations The most iterations to use.
+     * @return The most Argon2 iterations that hash within the budget.
+     */
+    public static int argon2Iterations(long budgetMs, int memoryKb, int parallelism,
+                                       int minIterations, int maxIterations) {
+        long nanos = measure(argon2(memoryKb, parallelism, 1));
+        int iterations = argon2Iterations(nanos, budgetMs * 1_000_000L, minIterations, maxIterations);
+        log.info("Argon2 with {} KB measured {} ms per iteration, using {} iterations for a {} ms budget",
+                memoryKb, nanos / 1_000_000, iterations, budgetMs);
+        return iterations;
+    }
+
+    public static Argon2PasswordEncoder argon2(int memoryKb, int parallelism, int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, parallelism, memoryKb, iterations);
+    }
+
+    static int bcryptStrength(long measuredNanos, int measuredStrength, long budgetNanos, int maxStrength) {
+        int strength = measuredStrength;
+        long nanos = Math.max(1, measuredNanos);
+        while (strength < maxStrength && nanos * 2 <= budgetNanos) {
+            nanos *= 2;
+            strength++;
+        }
+        return strength;
+    }
+
+    static int argon2Iterations(long nanosPerIteration, long budgetNanos, int minIterations, int maxIterations) {
+        long iterations = budgetNanos / Math.max(1, nanosPerIteration);
+        return (int) Math.max(minIterations, Math.min(maxIterations, iterations));
+    }
+
+    // The faster of two runs, so class loading and JIT warm-up do not count
+    private static long measure(PasswordEncoder encoder) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
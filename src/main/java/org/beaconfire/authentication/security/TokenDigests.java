@@ -0,0 +1,34 @@
+package org.beaconfire.authentication.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 digests of bearer tokens, so tokens can be used as lookup keys without being kept around.
+ */
+public final class TokenDigests {
+
+    private static final ObjectPool<MessageDigest> SHA_256 = new ObjectPool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private TokenDigests() {
+    }
+
+    /**
+     * @param token The raw token.
+     * @return The unpadded Base64URL encoded SHA-256 digest of the token.
+     */
+    public static String sha256(String token) {
+        MessageDigest digest = SHA_256.borrow();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        SHA_256.release(digest);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+}
@@ -0,0 +1,14 @@
+package org.beaconfire.authentication.security;
+
+/**
+ * Why a bearer token was rejected.
+ */
+public enum TokenFailureReason {
+    MISSING,
+    MALFORMED,
+    UNSUPPORTED,
+    INVALID_SIGNATURE,
+    EXPIRED,
+    // Valid, but revoked by jti or by the user's token epoch
+    REVOKED
+}
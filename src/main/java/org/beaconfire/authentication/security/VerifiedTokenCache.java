@@ -0,0 +1,109 @@
+package org.beaconfire.authentication.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of bearer tokens that already passed signature verification, keyed by the
+ * SHA-256 digest of the token.
+ * <p>
+ * An entry lives until the token expires, capped by {@code app.jwt.cache.ttl-in-ms} so that
+ * changes to the user behind the token are picked up. Hit, miss and eviction counts are published
+ * as the {@code cache.*} metrics tagged {@code cache=verifiedTokens}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final boolean enabled;
+    private final long ttlInMs;
+    private final Cache<String, Entry> cache;
+
+    public VerifiedTokenCache(@Value("${app.jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${app.jwt.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${app.jwt.cache.ttl-in-ms:300000}") long ttlInMs,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.ttlInMs = ttlInMs;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+    }
+
+    /**
+     * @param token The raw bearer token.
+     * @return The entry stored when the token was verified, or null if it is not cached.
+     */
+    public Entry get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        return cache.getIfPresent(TokenDigests.sha256(token));
+    }
+
+    /**
+     * Caches the authentication of a verified token until the token expires.
+     *
+     * @param token          The raw bearer token.
+     * @param authentication The authentication built from the token, without request details.
+     * @param parsedToken    The claims of the token.
+     * @return The entry, whether or not it was cached.
+     */
+    public Entry put(String token, Authentication authentication, ParsedToken parsedToken) {
+        Date expiration = parsedToken.getExpiration();
+        long expiresAt = expiration != null
+                ? Math.min(expiration.getTime(), System.currentTimeMillis() + ttlInMs)
+                : 0;
+        Entry entry = new Entry(authentication, parsedToken, expiresAt);
+        if (enabled && expiresAt > System.currentTimeMillis()) {
+            cache.put(TokenDigests.sha256(token), entry);
+        }
+        return entry;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Getter
+    public static final class Entry {
+        private final Authentication authentication;
+        private final ParsedToken parsedToken;
+        private final long expiresAt;
+
+        private Entry(Authentication authentication, ParsedToken parsedToken, long expiresAt) {
+            this.authentication = authentication;
+            this.parsedToken = parsedToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
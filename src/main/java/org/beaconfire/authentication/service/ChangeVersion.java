@@ -0,0 +1,137 @@
+package org.beaconfire.authentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.model.DataVersion;
+import org.beaconfire.authentication.repository.DataVersionRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the users and their roles, from which the admin listings derive their ETag.
+ * <p>
+ * The version is a counter in the DataVersion table, increased just before every transaction that
+ * changes users or roles commits, so it moves if and only if the change does and every node
+ * behind the load balancer hands out the same ETag for the same data. A listing asked for with
+ * the current ETag in If-None-Match is answered with 304 without a query. The ETag is cached
+ * between checks: a change committed on this node drops it at once, so the next listing reads the
+ * counter again, while changes made on other nodes are noticed by the periodic check.
+ * <p>
+ * The counter row stays locked from the increment to the commit, so it is increased once per
+ * transaction and as late as possible.
+ */
+@Service
+@Slf4j
+public class ChangeVersion {
+    private static final String USERS = "users";
+
+    private final DataVersionRepository dataVersionRepository;
+    // Increased on every local change, so a check that raced with one does not cache its result
+    private final AtomicLong changes = new AtomicLong();
+    private volatile String etag;
+
+    public ChangeVersion(DataVersionRepository dataVersionRepository) {
+        this.dataVersionRepository = dataVersionRepository;
+    }
+
+    /**
+     * @return The ETag of the current version. Read it before querying what it describes.
+     */
+    public String etag() {
+        String current = etag;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Increases the version just before the current transaction commits and drops the cached ETag
+     * once it has, or does both at once outside of a transaction.
+     */
+    public void changed() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            increment();
+            invalidate();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                increment();
+            }
+
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeVersion.this);
+            }
+        });
+    }
+
+    // Published by every change to a user or their roles, inside its transaction where there is one
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        changed();
+    }
+
+    @Scheduled(fixedDelayString = "${app.change-version.sync-interval-in-ms:30000}")
+    public void sync() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Could not read the change version: {}", e.getMessage());
+        }
+    }
+
+    private String refresh() {
+        long observed = changes.get();
+        Long version = dataVersionRepository.findVersion(USERS);
+        String current = "\"" + (version == null ? 0 : version) + "\"";
+        // The counter may have been read before a local change committed
+        if (changes.get() == observed) {
+            etag = current;
+        }
+        return current;
+    }
+
+    /**
+     * Creates the counter row on first start, outside of any change, so creating it can never fail
+     * a change.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            if (!dataVersionRepository.existsById(USERS)) {
+                dataVersionRepository.save(DataVersion.builder().name(USERS).version(0L).build());
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Another node created the change version first");
+        } catch (Exception e) {
+            log.error("Could not create the change version: {}", e.getMessage());
+        }
+    }
+
+    private void increment() {
+        if (dataVersionRepository.increment(USERS) == 0) {
+            log.warn("Change version row is missing, listings may answer 304 for changed data until a restart");
+        }
+    }
+
+    private void invalidate() {
+        changes.incrementAndGet();
+        etag = null;
+    }
+}
@@ -1,22 +1,80 @@
 package org.beaconfire.authentication.service;
 
-import lombok.AllArgsConstructor;
-import org.beaconfire.authentication.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.beaconfire.authentication.event.UserChangedEvent;
 import org.beaconfire.authentication.repository.UserRepository;
 import org.beaconfire.authentication.security.CustomUserPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-@AllArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    // Lower-cased usernames recently not found, null when disabled
+    private final Cache<String, Boolean> unknownUsernames;
+    // Principals of authenticated requests by lower-cased username, null when disabled
+    private final Cache<String, CustomUserPrincipal> principals;
+    // Bumped before every eviction, so an entry loaded across an eviction is not kept
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Unknown usernames are remembered for {@code app.user-lookup.negative-cache.ttl-in-ms}, so
+     * probes for accounts that do not exist stop reaching the database. Creating a user drops its
+     * entry on this node; other nodes pick the new user up once the entry expires.
+     * <p>
+     * Principals for JWT authenticated requests are cached for {@code app.user-lookup.cache.ttl-in-ms}
+     * in the same way. Creating a user or changing their roles evicts the entry on this node.
+     */
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${app.user-lookup.negative-cache.enabled:true}") boolean negativeCacheEnabled,
+                                    @Value("${app.user-lookup.negative-cache.maximum-size:10000}") long negativeMaximumSize,
+                                    @Value("${app.user-lookup.negative-cache.ttl-in-ms:60000}") long negativeTtlInMs,
+                                    @Value("${app.user-lookup.cache.enabled:true}") boolean cacheEnabled,
+                                    @Value("${app.user-lookup.cache.maximum-size:10000}") long maximumSize,
+                                    @Value("${app.user-lookup.cache.ttl-in-ms:60000}") long ttlInMs,
+                                    MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.unknownUsernames = negativeCacheEnabled
+                ? cache(negativeMaximumSize, negativeTtlInMs, meterRegistry, "unknownUsernames")
+                : null;
+        this.principals = cacheEnabled
+                ? cache(maximumSize, ttlInMs, meterRegistry, "userDetails")
+                : null;
+    }
 
-    private UserRepository userRepository;
+    private static <V> Cache<String, V> cache(long maximumSize, long ttlInMs, MeterRegistry meterRegistry, String name) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlInMs, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
 
     /**
      * Loads a user by their username and maps their integer role to Spring Security authorities.
+     * The user and their active role names come from a single projection query. A username
+     * recently not found is rejected without a query.
+     * <p>
+     * DaoAuthenticationProvider compares the password against a dummy hash whenever this throws,
+     * so an unknown username costs about as much as a wrong password. A cached unknown username
+     * still answers one database round trip faster than an uncached one. That is small next to
+     * the hash, but it is not hidden: repeating a probe can tell whether this node has seen the
+     * username fail within the TTL.
      *
      * @param username The username to look for.
      * @return A UserDetails object for Spring Security containing username, password, and authorities.
@@ -24,13 +82,94 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        String key = usernameKey(username);
+        if (unknownUsernames != null && key != null && unknownUsernames.getIfPresent(key) != null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        long evictionCount = evictions.get();
+        CustomUserPrincipal principal = CustomUserPrincipal.fromCredentials(
+                userRepository.findCredentialsByUsername(username));
+        if (principal == null) {
+            if (unknownUsernames != null && key != null) {
+                unknownUsernames.put(key, Boolean.TRUE);
+                if (evictions.get() != evictionCount) {
+                    // The user was created while it was looked up
+                    unknownUsernames.invalidate(key);
+                }
+            }
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
 
-        if (!user.getActiveFlag()) {
+        if (!principal.isEnabled()) {
             throw new UsernameNotFoundException("User account is disabled: " + username);
         }
 
-        return new CustomUserPrincipal(user);
+        return principal;
+    }
+
+    /**
+     * Loads the principal of a JWT authenticated request. The principal is an immutable snapshot
+     * without the password, see {@link CustomUserPrincipal#snapshot}, cached until the user
+     * changes or the entry expires.
+     *
+     * @param username The username from the token.
+     * @return The principal of the user.
+     * @throws UsernameNotFoundException if the user is not found or disabled.
+     */
+    public UserDetails loadAuthenticatedUser(String username) throws UsernameNotFoundException {
+        String key = usernameKey(username);
+        if (principals == null || key == null) {
+            return loadUserByUsername(username);
+        }
+        CustomUserPrincipal cached = principals.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long evictionCount = evictions.get();
+        CustomUserPrincipal loaded = (CustomUserPrincipal) loadUserByUsername(username);
+        CustomUserPrincipal snapshot = CustomUserPrincipal.snapshot(loaded.getUser());
+        principals.put(key, snapshot);
+        if (evictions.get() != evictionCount) {
+            // The user changed while it was loaded, the snapshot may be stale
+            principals.invalidate(key);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Stores a password rehashed after a successful login, because the stored hash used an outdated
+     * algorithm or cost.
+     *
+     * @param user        The authenticated user.
+     * @param newPassword The new password hash.
+     * @return The user with the new password hash.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        if (user instanceof CustomUserPrincipal) {
+            ((CustomUserPrincipal) user).getUser().setPassword(newPassword);
+        }
+        return user;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        String key = usernameKey(event.getUsername());
+        if (key == null) {
+            return;
+        }
+        evictions.incrementAndGet();
+        if (unknownUsernames != null) {
+            unknownUsernames.invalidate(key);
+        }
+        if (principals != null) {
+            principals.invalidate(key);
+        }
+    }
+
+    // Usernames are matched case-insensitively by the database collation
+    private static String usernameKey(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
     }
 }
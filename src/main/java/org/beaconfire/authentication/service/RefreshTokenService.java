@@ -0,0 +1,113 @@
+package org.beaconfire.authentication.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.exception.TokenExpiredException;
+import org.beaconfire.authentication.exception.TokenNotFoundException;
+import org.beaconfire.authentication.model.RefreshToken;
+import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.repository.RefreshTokenRepository;
+import org.beaconfire.authentication.security.TokenDigests;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Long-lived refresh tokens, exchanged for new access tokens without checking the password again.
+ * <p>
+ * A refresh token can be used once: every refresh returns a new one from the same family. If a
+ * token that was already used is presented again, either the client or an attacker holds a copy,
+ * so the whole family is revoked and the user has to log in again.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpirationInMs;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${app.jwt.refresh-expiration-in-ms:1209600000}") long refreshExpirationInMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpirationInMs = refreshExpirationInMs;
+    }
+
+    /**
+     * Starts a new token family after a login.
+     *
+     * @param user The authenticated user.
+     * @return The refresh token to hand to the client.
+     */
+    @Transactional
+    public String issue(User user) {
+        return create(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new one from the same family.
+     *
+     * @param refreshToken The refresh token presented by the client.
+     * @return The user the token belongs to and the new refresh token.
+     * @throws TokenNotFoundException if the token is unknown, revoked or was already used.
+     * @throws TokenExpiredException  if the token has expired.
+     */
+    @Transactional(noRollbackFor = {TokenNotFoundException.class, TokenExpiredException.class})
+    public Rotation rotate(String refreshToken) {
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(TokenDigests.sha256(refreshToken))
+                .orElseThrow(() -> new TokenNotFoundException("Invalid refresh token."));
+        if (Boolean.TRUE.equals(stored.getRevokedFlag())) {
+            throw new TokenNotFoundException("Refresh token has been revoked.");
+        }
+        if (stored.isExpired()) {
+            throw new TokenExpiredException("Refresh token has expired.");
+        }
+        if (refreshTokenRepository.markUsed(stored.getId(), LocalDateTime.now()) == 0) {
+            refreshTokenRepository.revokeFamily(stored.getFamilyId());
+            log.warn("Refresh token reused for user {}, revoked token family {}",
+                    stored.getUser().getUsername(), stored.getFamilyId());
+            throw new TokenNotFoundException("Refresh token has already been used.");
+        }
+        User user = stored.getUser();
+        if (!Boolean.TRUE.equals(user.getActiveFlag())) {
+            refreshTokenRepository.revokeFamily(stored.getFamilyId());
+            throw new TokenNotFoundException("User is inactive.");
+        }
+        return new Rotation(user, create(user, stored.getFamilyId()));
+    }
+
+    public void cleanupExpiredTokens() {
+        refreshTokenRepository.deleteExpiredTokens(LocalDateTime.now());
+    }
+
+    private String create(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(TokenDigests.sha256(token))
+                .user(user)
+                .familyId(familyId)
+                .expirationDate(LocalDateTime.now().plus(refreshExpirationInMs, ChronoUnit.MILLIS))
+                .build());
+        return token;
+    }
+
+    @Getter
+    public static final class Rotation {
+        private final User user;
+        private final String refreshToken;
+
+        private Rotation(User user, String refreshToken) {
+            this.user = user;
+            this.refreshToken = refreshToken;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.beaconfire.authentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.RoleRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory catalogue of the roles, so looking a role up by name or id needs no query.
+ * <p>
+ * The catalogue is loaded at startup and never modified: adding a role swaps in a new copy, so
+ * readers never lock. Roles created on other nodes are picked up by the periodic reload, or on
+ * the first lookup that misses. The cached roles are detached copies that are only used as
+ * references, for example when assigning a role to a user.
+ */
+@Service
+@Slf4j
+public class RoleRegistry {
+    private final RoleRepository roleRepository;
+    // Role creation commits on its own, so a duplicate key does not roll back the caller
+    private final TransactionTemplate requiresNew;
+    private final AtomicReference<Catalogue> catalogue = new AtomicReference<>(Catalogue.EMPTY);
+
+    public RoleRegistry(RoleRepository roleRepository, PlatformTransactionManager transactionManager) {
+        this.roleRepository = roleRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.roles.refresh-interval-in-ms:300000}",
+            initialDelayString = "${app.roles.refresh-interval-in-ms:300000}")
+    public void reload() {
+        try {
+            catalogue.set(Catalogue.of(roleRepository.findAll()));
+        } catch (Exception e) {
+            log.error("Could not load roles, keeping the previous catalogue: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @param roleName The role name.
+     * @return The role, looked up in the database only if it is not in the catalogue.
+     */
+    public Optional<Role> findByName(String roleName) {
+        Role role = catalogue.get().byName.get(roleName);
+        if (role != null) {
+            return Optional.of(role);
+        }
+        return roleRepository.findByRoleName(roleName).map(this::register);
+    }
+
+    /**
+     * @param id The role id.
+     * @return The role, if it is in the catalogue.
+     */
+    public Optional<Role> findById(Integer id) {
+        return Optional.ofNullable(catalogue.get().byId.get(id));
+    }
+
+    /**
+     * Returns the role with the given name, creating it if it does not exist yet. Concurrent
+     * callers, on this node or others, end up with the same role.
+     *
+     * @param roleName    The role name.
+     * @param description The description of the role, if it has to be created.
+     * @return The role.
+     */
+    public Role getOrCreate(String roleName, String description) {
+        Role role = catalogue.get().byName.get(roleName);
+        if (role != null) {
+            return role;
+        }
+        try {
+            role = requiresNew.execute(status -> roleRepository.findByRoleName(roleName)
+                    .orElseGet(() -> {
+                        log.info("Role '{}' not found. Creating it.", roleName);
+                        return roleRepository.saveAndFlush(Role.builder()
+                                .roleName(roleName)
+                                .roleDescription(description)
+                                .build());
+                    }));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another request
+            role = roleRepository.findByRoleName(roleName).orElseThrow(() -> e);
+        }
+        return register(role);
+    }
+
+    private Role register(Role role) {
+        Role copy = detach(role);
+        Catalogue current;
+        Catalogue updated;
+        do {
+            current = catalogue.get();
+            Role existing = current.byName.get(copy.getRoleName());
+            if (existing != null) {
+                return existing;
+            }
+            updated = current.with(copy);
+        } while (!catalogue.compareAndSet(current, updated));
+        return copy;
+    }
+
+    private static Role detach(Role role) {
+        return Role.builder()
+                .id(role.getId())
+                .roleName(role.getRoleName())
+                .roleDescription(role.getRoleDescription())
+                .createDate(role.getCreateDate())
+                .lastModificationDate(role.getLastModificationDate())
+                .build();
+    }
+
+    private static final class Catalogue {
+        static final Catalogue EMPTY = new Catalogue(Collections.emptyMap(), Collections.emptyMap());
+
+        final Map<String, Role> byName;
+        final Map<Integer, Role> byId;
+
+        private Catalogue(Map<String, Role> byName, Map<Integer, Role> byId) {
+            this.byName = byName;
+            this.byId = byId;
+        }
+
+        static Catalogue of(Collection<Role> roles) {
+            Map<String, Role> names = new HashMap<>();
+            Map<Integer, Role> ids = new HashMap<>();
+            for (Role role : roles) {
+                Role copy = detach(role);
+                names.put(copy.getRoleName(), copy);
+                ids.put(copy.getId(), copy);
+            }
+            return new Catalogue(Collections.unmodifiableMap(names), Collections.unmodifiableMap(ids));
+        }
+
+        Catalogue with(Role role) {
+            Map<String, Role> names = new HashMap<>(byName);
+            Map<Integer, Role> ids = new HashMap<>(byId);
+            names.put(role.getRoleName(), role);
+            ids.put(role.getId(), role);
+            return new Catalogue(Collections.unmodifiableMap(names), Collections.unmodifiableMap(ids));
+        }
+    }
+}
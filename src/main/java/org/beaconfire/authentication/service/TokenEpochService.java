@@ -0,0 +1,154 @@
+package org.beaconfire.authentication.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.beaconfire.authentication.repository.projection.UserTokenEpoch;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory table of the moment from which each user's JWTs are valid.
+ * <p>
+ * Only users that were deactivated or had their tokens revoked have an entry, so the table stays
+ * small. It is reloaded from the database in the background, which is how changes made on other
+ * nodes reach this one; changes made on this node apply as soon as their transaction commits, so
+ * a rolled back change never rejects valid tokens.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TokenEpochService {
+    private static final long ALL_TOKENS_REVOKED = Long.MAX_VALUE;
+    // Keeps the IN lists of bulk updates to a reasonable size
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+
+    // Username to the epoch second tokens must be issued at or after
+    private volatile Map<String, Long> validAfterByUsername = Collections.emptyMap();
+    // Updates made while a refresh queries the table, applied on top of what it read; null outside a refresh
+    private Map<String, Long> updatedDuringRefresh;
+
+    /**
+     * @param username The user the token was issued to.
+     * @param issuedAt The {@code iat} claim of the token.
+     * @return Whether the token was issued after the user's tokens were last revoked.
+     */
+    public boolean isTokenCurrent(String username, Date issuedAt) {
+        Long validAfter = validAfterByUsername.get(username);
+        if (validAfter == null) {
+            return true;
+        }
+        return issuedAt != null && issuedAt.getTime() / 1000 >= validAfter;
+    }
+
+    /**
+     * Rejects every token issued to the user so far, for example after their roles changed.
+     *
+     * @param user The user whose tokens to revoke.
+     */
+    public void revokeIssuedTokens(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.updateTokensValidAfter(user.getId(), now);
+        update(Collections.singletonList(user.getUsername()), toEpochSecond(now));
+    }
+
+    /**
+     * Rejects every token issued so far to each of the users.
+     *
+     * @param users The users whose tokens to revoke.
+     */
+    public void revokeIssuedTokens(List<UserIdRow> users) {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> usernames = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += UPDATE_CHUNK_SIZE) {
+            List<Integer> userIds = new ArrayList<>();
+            for (UserIdRow user : users.subList(from, Math.min(from + UPDATE_CHUNK_SIZE, users.size()))) {
+                userIds.add(user.getId());
+                usernames.add(user.getUsername());
+            }
+            userRepository.updateTokensValidAfterIn(userIds, now);
+        }
+        update(usernames, toEpochSecond(now));
+    }
+
+    /**
+     * Rejects every token of users that were just deactivated, once the deactivation commits and
+     * without waiting for the next refresh.
+     *
+     * @param usernames The deactivated users.
+     */
+    public void deactivated(Collection<String> usernames) {
+        update(usernames, ALL_TOKENS_REVOKED);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.stateless.refresh-interval-in-ms:30000}")
+    public void refresh() {
+        synchronized (this) {
+            updatedDuringRefresh = new HashMap<>();
+        }
+        try {
+            Map<String, Long> refreshed = new HashMap<>();
+            for (UserTokenEpoch epoch : userRepository.findTokenEpochs()) {
+                refreshed.put(epoch.getUsername(), Boolean.FALSE.equals(epoch.getActiveFlag())
+                        ? ALL_TOKENS_REVOKED
+                        : toEpochSecond(epoch.getTokensValidAfter()));
+            }
+            synchronized (this) {
+                // The query may not have seen them yet
+                refreshed.putAll(updatedDuringRefresh);
+                validAfterByUsername = Collections.unmodifiableMap(refreshed);
+            }
+        } catch (Exception e) {
+            log.error("Could not refresh token epochs, keeping the previous table: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                updatedDuringRefresh = null;
+            }
+        }
+    }
+
+    private void update(Collection<String> usernames, long validAfter) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            apply(usernames, validAfter);
+            return;
+        }
+        List<String> pending = new ArrayList<>(usernames);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(pending, validAfter);
+            }
+        });
+    }
+
+    private synchronized void apply(Collection<String> usernames, long validAfter) {
+        Map<String, Long> updated = new HashMap<>(validAfterByUsername);
+        for (String username : usernames) {
+            updated.put(username, validAfter);
+            if (updatedDuringRefresh != null) {
+                updatedDuringRefresh.put(username, validAfter);
+            }
+        }
+        validAfterByUsername = Collections.unmodifiableMap(updated);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
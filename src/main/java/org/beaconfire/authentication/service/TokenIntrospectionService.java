@@ -0,0 +1,138 @@
+package org.beaconfire.authentication.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.dto.response.TokenIntrospectionResponse;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.ParsedToken;
+import org.beaconfire.authentication.security.TokenFailureReason;
+import org.beaconfire.authentication.security.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks many tokens in one call, for services that would otherwise call once per token.
+ * <p>
+ * A batch is split into chunks that run on a bounded pool, with the first chunk on the calling
+ * thread. When the pool's queue is full the caller runs the chunk itself, so a burst of batches
+ * slows down instead of piling up. Small batches never leave the calling thread, since an HS256
+ * verification is cheaper than handing it to another thread.
+ */
+@Service
+@Slf4j
+public class TokenIntrospectionService {
+    private final JwtTokenProvider tokenProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final TokenEpochService tokenEpochService;
+    private final ThreadPoolExecutor executor;
+    private final int maxBatchSize;
+    private final int chunkSize;
+
+    public TokenIntrospectionService(JwtTokenProvider tokenProvider,
+                                     VerifiedTokenCache verifiedTokenCache,
+                                     TokenRevocationService tokenRevocationService,
+                                     TokenEpochService tokenEpochService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.jwt.introspection.threads:0}") int threads,
+                                     @Value("${app.jwt.introspection.queue-capacity:64}") int queueCapacity,
+                                     @Value("${app.jwt.introspection.max-batch-size:1000}") int maxBatchSize,
+                                     @Value("${app.jwt.introspection.chunk-size:32}") int chunkSize) {
+        this.tokenProvider = tokenProvider;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenEpochService = tokenEpochService;
+        this.maxBatchSize = maxBatchSize;
+        this.chunkSize = Math.max(1, chunkSize);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "token-introspection-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "tokenIntrospection");
+    }
+
+    /**
+     * @param tokens The JWTs to check.
+     * @return One result per token, in the same order.
+     */
+    public List<TokenIntrospectionResponse> introspect(List<String> tokens) {
+        if (tokens.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " tokens can be introspected at once.");
+        }
+        TokenIntrospectionResponse[] results = new TokenIntrospectionResponse[tokens.size()];
+        List<Future<?>> pending = new ArrayList<>();
+        for (int start = chunkSize; start < tokens.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, tokens.size());
+            pending.add(executor.submit(() -> introspect(tokens, results, from, to)));
+        }
+        introspect(tokens, results, 0, Math.min(chunkSize, tokens.size()));
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while introspecting tokens", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not introspect tokens", e.getCause());
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private void introspect(List<String> tokens, TokenIntrospectionResponse[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = introspect(tokens.get(i));
+        }
+    }
+
+    private TokenIntrospectionResponse introspect(String token) {
+        VerifiedTokenCache.Entry verified = token == null ? null : verifiedTokenCache.get(token);
+        ParsedToken parsed = verified != null ? verified.getParsedToken() : tokenProvider.parseToken(token);
+        if (!parsed.isValid()) {
+            return TokenIntrospectionResponse.builder()
+                    .active(false)
+                    .failureReason(parsed.getFailureReason())
+                    .build();
+        }
+        boolean current = !tokenRevocationService.isRevoked(parsed.getTokenId())
+                && tokenEpochService.isTokenCurrent(parsed.getUsername(), parsed.getIssuedAt());
+        return TokenIntrospectionResponse.builder()
+                .active(current)
+                .subject(parsed.getSubject())
+                .userId(parsed.getUserId())
+                .username(parsed.getUsername())
+                .roles(parsed.getRoles())
+                .expiration(parsed.getExpiration() == null ? null
+                        : LocalDateTime.ofInstant(parsed.getExpiration().toInstant(), ZoneId.systemDefault()))
+                .failureReason(current ? null : TokenFailureReason.REVOKED)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,150 @@
+package org.beaconfire.authentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.model.RevokedToken;
+import org.beaconfire.authentication.repository.RevokedTokenRepository;
+import org.beaconfire.authentication.security.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Denylist of revoked JWTs, identified by their {@code jti} claim.
+ * <p>
+ * The RevokedToken table is the exact record. A Bloom filter of the revoked ids sits in front of
+ * it, so a token that was never revoked is cleared in memory; only filter hits go to the database.
+ * Revocations made on other nodes are merged into the filter every
+ * {@code app.jwt.revocation.sync-interval-in-ms}. Expired rows are pruned and the filter rebuilt
+ * every {@code app.jwt.revocation.prune-interval-in-ms}.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+    // Length of the RevokedToken id column
+    public static final int MAX_TOKEN_ID_LENGTH = 64;
+    // Covers commits that land after the previous sync query ran
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final long jwtExpirationInMs;
+
+    // Null until the first load succeeds, in which case every check goes to the database
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime lastSync;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${app.jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+                                  @Value("${app.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                                  @Value("${app.jwt.expiration-in-ms}") long jwtExpirationInMs) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.jwtExpirationInMs = jwtExpirationInMs;
+    }
+
+    /**
+     * @param tokenId The {@code jti} claim of a verified token.
+     * @return Whether the token was revoked. Tokens without a {@code jti} cannot be revoked.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(tokenId);
+    }
+
+    /**
+     * Revokes a token until it expires.
+     *
+     * @param tokenId    The {@code jti} claim of the token.
+     * @param expiration The {@code exp} claim of the token, or null to keep it for the longest token lifetime.
+     * @throws IllegalArgumentException if the id is missing or longer than {@link #MAX_TOKEN_ID_LENGTH}.
+     */
+    public void revoke(String tokenId, Date expiration) {
+        if (tokenId == null || tokenId.isEmpty() || tokenId.length() > MAX_TOKEN_ID_LENGTH) {
+            throw new IllegalArgumentException("Token id must be 1 to " + MAX_TOKEN_ID_LENGTH + " characters long.");
+        }
+        LocalDateTime expirationDate = expiration != null
+                ? LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault())
+                : LocalDateTime.now().plus(jwtExpirationInMs, ChronoUnit.MILLIS);
+        if (!revokedTokenRepository.existsById(tokenId)) {
+            try {
+                revokedTokenRepository.save(RevokedToken.builder()
+                        .tokenId(tokenId)
+                        .expirationDate(expirationDate)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent request revoked it between the check and the insert
+                log.debug("JWT {} was already revoked", tokenId);
+            }
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(tokenId);
+        }
+        log.info("Revoked JWT {}", tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval-in-ms:10000}")
+    public void sync() {
+        BloomFilter current = filter;
+        if (current == null) {
+            rebuild();
+            return;
+        }
+        try {
+            LocalDateTime syncStart = LocalDateTime.now();
+            for (String tokenId : revokedTokenRepository.findTokenIdsRevokedSince(
+                    lastSync.minusSeconds(SYNC_OVERLAP_SECONDS))) {
+                current.put(tokenId);
+            }
+            lastSync = syncStart;
+        } catch (Exception e) {
+            log.error("Could not sync revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.prune-interval-in-ms:3600000}",
+            initialDelayString = "${app.jwt.revocation.prune-interval-in-ms:3600000}")
+    public void prune() {
+        try {
+            int deleted = revokedTokenRepository.deleteExpiredTokens(LocalDateTime.now());
+            log.info("Pruned {} expired revoked tokens", deleted);
+        } catch (Exception e) {
+            log.error("Could not prune revoked tokens: {}", e.getMessage());
+        }
+        rebuild();
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        try {
+            LocalDateTime rebuildStart = LocalDateTime.now();
+            List<String> tokenIds = revokedTokenRepository.findValidTokenIds(rebuildStart);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, tokenIds.size() * 2L), falsePositiveRate);
+            for (String tokenId : tokenIds) {
+                rebuilt.put(tokenId);
+            }
+            filter = rebuilt;
+            // Picks up tokens revoked into the previous filter while this one was being built
+            lastSync = rebuildStart;
+            sync();
+        } catch (Exception e) {
+            log.error("Could not load revoked tokens, checking the database instead: {}", e.getMessage());
+        }
+    }
+}
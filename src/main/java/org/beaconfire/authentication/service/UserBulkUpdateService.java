@@ -0,0 +1,205 @@
+package org.beaconfire.authentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.dto.request.BulkUserUpdateRequest;
+import org.beaconfire.authentication.dto.response.BulkUserUpdateResponse;
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.UserRoleRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Changes the role or the active flag of many users at once, for example a whole department.
+ * <p>
+ * Each change is a few set-based statements per chunk of users in one transaction, instead of
+ * loading and saving the users one by one. Tokens issued before the change are revoked only for
+ * the users the change actually affects, so selecting users that already have the requested role
+ * or flag does not log them out. Their cached principals are evicted once the transaction commits.
+ */
+@Service
+@Slf4j
+public class UserBulkUpdateService {
+    // Keeps the IN lists of the statements to a reasonable size
+    private static final int CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final RoleRegistry roleRegistry;
+    private final TokenEpochService tokenEpochService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxUsers;
+
+    public UserBulkUpdateService(UserRepository userRepository,
+                                 UserRoleRepository userRoleRepository,
+                                 RoleRegistry roleRegistry,
+                                 TokenEpochService tokenEpochService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.user-bulk-update.max-users:10000}") int maxUsers) {
+        this.userRepository = userRepository;
+        this.userRoleRepository = userRoleRepository;
+        this.roleRegistry = roleRegistry;
+        this.tokenEpochService = tokenEpochService;
+        this.eventPublisher = eventPublisher;
+        this.maxUsers = maxUsers;
+    }
+
+    /**
+     * Replaces all roles of the selected users with the given one.
+     *
+     * @param request The users and their new role.
+     * @return The affected counts.
+     */
+    @Transactional
+    public BulkUserUpdateResponse reassignRole(BulkUserUpdateRequest request) {
+        if (isBlank(request.getRole())) {
+            throw new IllegalArgumentException("role must be given.");
+        }
+        // A bulk change may only hand out roles that already exist
+        String roleName = request.getRole().trim();
+        Role role = roleRegistry.findByName(roleName)
+                .orElseThrow(() -> new IllegalArgumentException("Role '" + roleName + "' does not exist."));
+        List<UserIdRow> users = select(request);
+        if (users.isEmpty()) {
+            return BulkUserUpdateResponse.builder().build();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int removed = 0;
+        int added = 0;
+        List<List<Integer>> chunks = chunks(users);
+        // Users whose only active role already is the new one keep their tokens
+        Set<Integer> unchanged = new HashSet<>();
+        for (List<Integer> userIds : chunks) {
+            for (UserIdRow user : userRepository.findIdsWithOnlyActiveRole(userIds, role.getId())) {
+                unchanged.add(user.getId());
+            }
+        }
+        for (List<Integer> userIds : chunks) {
+            // A user that already has the role keeps its link, so the unique key is never hit
+            removed += userRoleRepository.deleteOtherRoles(userIds, role.getId());
+            added += userRoleRepository.activateRole(userIds, role.getId(), now);
+            added += userRoleRepository.insertMissingRole(userIds, role.getId(), now);
+        }
+        List<UserIdRow> changed = new ArrayList<>();
+        for (UserIdRow user : users) {
+            if (!unchanged.contains(user.getId())) {
+                changed.add(user);
+            }
+        }
+        if (!changed.isEmpty()) {
+            // Tokens issued so far still carry the old roles
+            tokenEpochService.revokeIssuedTokens(changed);
+            publishChanges(changed);
+        }
+        log.info("Gave role '{}' to {} of {} users, {} role links removed, {} added",
+                role.getRoleName(), changed.size(), users.size(), removed, added);
+        return BulkUserUpdateResponse.builder()
+                .matched(users.size())
+                .rolesRemoved(removed)
+                .rolesAdded(added)
+                .build();
+    }
+
+    /**
+     * Activates or deactivates the selected users.
+     *
+     * @param request The users and whether they are active.
+     * @return The affected counts.
+     */
+    @Transactional
+    public BulkUserUpdateResponse setActive(BulkUserUpdateRequest request) {
+        if (request.getActive() == null) {
+            throw new IllegalArgumentException("active must be given.");
+        }
+        boolean active = request.getActive();
+        List<UserIdRow> users = select(request);
+        if (users.isEmpty()) {
+            return BulkUserUpdateResponse.builder().build();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int updated = 0;
+        List<UserIdRow> changed = new ArrayList<>();
+        for (List<Integer> userIds : chunks(users)) {
+            changed.addAll(userRepository.findIdsByIdInAndActiveFlagNot(userIds, active));
+            updated += userRepository.updateActiveFlagIn(userIds, active, now);
+        }
+        // Users that already had the flag keep their tokens
+        if (!changed.isEmpty()) {
+            if (active) {
+                // Tokens issued before the deactivation must not become valid again
+                tokenEpochService.revokeIssuedTokens(changed);
+            } else {
+                List<String> usernames = new ArrayList<>(changed.size());
+                for (UserIdRow user : changed) {
+                    usernames.add(user.getUsername());
+                }
+                tokenEpochService.deactivated(usernames);
+            }
+            publishChanges(changed);
+        }
+        log.info("{} {} of {} users", active ? "Activated" : "Deactivated", updated, users.size());
+        return BulkUserUpdateResponse.builder()
+                .matched(users.size())
+                .updated(updated)
+                .build();
+    }
+
+    private List<UserIdRow> select(BulkUserUpdateRequest request) {
+        boolean byIds = request.getUserIds() != null && !request.getUserIds().isEmpty();
+        if (byIds == !isBlank(request.getCurrentRole())) {
+            throw new IllegalArgumentException("Either userIds or currentRole must be given.");
+        }
+        List<UserIdRow> users;
+        if (byIds) {
+            if (request.getUserIds().size() > maxUsers) {
+                throw new IllegalArgumentException("At most " + maxUsers + " users can be updated at once.");
+            }
+            users = new ArrayList<>();
+            List<Integer> userIds = request.getUserIds();
+            for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+                List<Integer> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+                users.addAll(userRepository.findIdsByIdIn(chunk));
+            }
+        } else {
+            users = userRepository.findIdsByRoleName(request.getCurrentRole().trim());
+            if (users.size() > maxUsers) {
+                throw new IllegalArgumentException("Role '" + request.getCurrentRole().trim() + "' has more than "
+                        + maxUsers + " users, which cannot be updated at once.");
+            }
+        }
+        return users;
+    }
+
+    private static List<List<Integer>> chunks(List<UserIdRow> users) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < users.size(); from += CHUNK_SIZE) {
+            List<Integer> userIds = new ArrayList<>();
+            for (UserIdRow user : users.subList(from, Math.min(from + CHUNK_SIZE, users.size()))) {
+                userIds.add(user.getId());
+            }
+            chunks.add(userIds);
+        }
+        return chunks;
+    }
+
+    // Delivered after the commit
+    private void publishChanges(List<UserIdRow> users) {
+        for (UserIdRow user : users) {
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
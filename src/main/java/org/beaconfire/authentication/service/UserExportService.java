@@ -0,0 +1,98 @@
+package org.beaconfire.authentication.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserExportRow;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every user and their active roles as newline delimited JSON, one user per line.
+ * <p>
+ * Rows are written as they are read from the database, and are projections rather than entities,
+ * so nothing accumulates in the persistence context and memory use does not depend on the number
+ * of users.
+ */
+@Service
+@Slf4j
+public class UserExportService {
+    private final UserRepository userRepository;
+    // The result stream needs the connection until the last row is read
+    private final TransactionTemplate readOnly;
+    private final JsonFactory jsonFactory;
+
+    public UserExportService(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * @param out The stream to write to, left open.
+     * @return The number of users written.
+     */
+    public long export(OutputStream out) {
+        Long count = readOnly.execute(status -> {
+            try (Stream<UserExportRow> rows = userRepository.streamUserExport();
+                 JsonGenerator json = jsonFactory.createGenerator(out)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.setRootValueSeparator(null);
+                return write(rows.iterator(), json);
+            } catch (IOException e) {
+                // Usually the client went away
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} users", count);
+        return count;
+    }
+
+    private static long write(Iterator<UserExportRow> rows, JsonGenerator json) throws IOException {
+        long count = 0;
+        Integer currentId = null;
+        while (rows.hasNext()) {
+            UserExportRow row = rows.next();
+            // The rows of a user are adjacent, one per role
+            if (!row.getId().equals(currentId)) {
+                if (currentId != null) {
+                    endUser(json);
+                }
+                currentId = row.getId();
+                count++;
+                json.writeStartObject();
+                json.writeNumberField("userId", row.getId());
+                json.writeStringField("username", row.getUsername());
+                json.writeStringField("email", row.getEmail());
+                json.writeBooleanField("activeFlag", Boolean.TRUE.equals(row.getActiveFlag()));
+                json.writeStringField("createDate",
+                        row.getCreateDate() == null ? null : row.getCreateDate().toString());
+                json.writeArrayFieldStart("roles");
+            }
+            if (row.getRoleName() != null) {
+                json.writeString(row.getRoleName());
+            }
+        }
+        if (currentId != null) {
+            endUser(json);
+        }
+        return count;
+    }
+
+    private static void endUser(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
@@ -0,0 +1,317 @@
+package org.beaconfire.authentication.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.beaconfire.authentication.dto.request.UserImportRequest;
+import org.beaconfire.authentication.dto.response.UserImportResponse;
+import org.beaconfire.authentication.dto.user.UserImportEntry;
+import org.beaconfire.authentication.dto.user.UserImportResult;
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.exception.UserAlreadyExistsException;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.beaconfire.authentication.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many users in one call, for onboarding a cohort.
+ * <p>
+ * Entries are validated first, and the ones that are invalid, repeated or already taken are reported
+ * and skipped. The passwords of the remaining ones are hashed in parallel on a fork-join pool of its
+ * own, sized so that logins keep hashing threads to themselves. The users and their role links are
+ * then inserted in one transaction: the users with a JDBC batch, and their role links with one
+ * INSERT ... SELECT per chunk of users. Hibernate cannot batch these inserts because the ids are
+ * generated by the database.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+    static final String DEFAULT_ROLE_NAME = "ROLE_ONBOARDING";
+    // Keeps the IN lists of the lookups to a reasonable size
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private static final String INSERT_USER = "INSERT INTO User " +
+            "(username, email, password, activeFlag, createDate, lastModificationDate) VALUES (?, ?, ?, ?, ?, ?)";
+    // A batch does not return the generated user ids, so the role links find their users by username,
+    // one statement per chunk of users
+    private static final String INSERT_USER_ROLES = "INSERT INTO UserRole " +
+            "(userId, roleId, activeFlag, createDate, lastModificationDate) " +
+            "SELECT u.id, ?, ?, ?, ? FROM User u WHERE u.username IN (%s)";
+
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final PasswordEncoder hasher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ForkJoinPool hashingPool;
+    private final int maxBatchSize;
+    private final int jdbcBatchSize;
+
+    public UserImportService(UserRepository userRepository,
+                             RoleRegistry roleRegistry,
+                             PasswordEncoder passwordEncoder,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             Validator validator,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${app.user-import.max-batch-size:5000}") int maxBatchSize,
+                             @Value("${app.user-import.jdbc-batch-size:500}") int jdbcBatchSize,
+                             @Value("${app.user-import.hashing-threads:0}") int hashingThreads) {
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        // The import bounds its own hashing instead of filling the queue that logins wait in
+        this.hasher = passwordEncoder instanceof BoundedPasswordEncoder
+                ? ((BoundedPasswordEncoder) passwordEncoder).unbounded()
+                : passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+        this.jdbcBatchSize = Math.max(1, jdbcBatchSize);
+        int parallelism = hashingThreads > 0
+                ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashingPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("user-import-hashing-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * @param request The users to create and the role to give them.
+     * @return One result per entry, in the same order.
+     * @throws UserAlreadyExistsException if some users were created concurrently; nothing is imported then.
+     */
+    public UserImportResponse importUsers(UserImportRequest request) {
+        List<UserImportEntry> entries = request.getUsers();
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("No users to import.");
+        }
+        if (entries.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " users can be imported at once.");
+        }
+
+        UserImportResult[] results = new UserImportResult[entries.size()];
+        List<Integer> accepted = validate(entries, results);
+        rejectExisting(entries, accepted, results);
+        if (!accepted.isEmpty()) {
+            Role role = resolveRole(request.getRole());
+            String[] hashes = hash(entries, accepted);
+            Map<String, Integer> ids;
+            try {
+                ids = insert(entries, accepted, hashes, role);
+            } catch (DataIntegrityViolationException e) {
+                throw new UserAlreadyExistsException(
+                        "Some users were created while importing, nothing was imported. Please retry the import.");
+            }
+            for (Integer i : accepted) {
+                String username = entries.get(i).getUsername();
+                results[i] = UserImportResult.builder()
+                        .index(i)
+                        .username(username)
+                        .created(true)
+                        .userId(ids.get(normalize(username)))
+                        .build();
+            }
+        }
+        log.info("Imported {} of {} users", accepted.size(), entries.size());
+        return UserImportResponse.builder()
+                .created(accepted.size())
+                .failed(entries.size() - accepted.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    /**
+     * Only the default role may be created here; any other role must already exist, so an import
+     * cannot introduce roles.
+     */
+    private Role resolveRole(String roleName) {
+        if (roleName == null || roleName.trim().isEmpty()) {
+            return roleRegistry.getOrCreate(DEFAULT_ROLE_NAME, "Default role for registered users");
+        }
+        return roleRegistry.findByName(roleName.trim())
+                .orElseThrow(() -> new IllegalArgumentException("Role '" + roleName.trim() + "' does not exist."));
+    }
+
+    /**
+     * @return The indexes of the valid entries that do not repeat an earlier one.
+     */
+    private List<Integer> validate(List<UserImportEntry> entries, UserImportResult[] results) {
+        List<Integer> accepted = new ArrayList<>(entries.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            UserImportEntry entry = entries.get(i);
+            if (entry == null) {
+                results[i] = failed(i, null, "Entry is empty.");
+                continue;
+            }
+            Set<ConstraintViolation<UserImportEntry>> violations = validator.validate(entry);
+            if (!violations.isEmpty()) {
+                // Sorted, so the same entry always gets the same error
+                Set<String> messages = new TreeSet<>();
+                for (ConstraintViolation<UserImportEntry> violation : violations) {
+                    messages.add(violation.getMessage());
+                }
+                results[i] = failed(i, entry.getUsername(), String.join("; ", messages));
+            } else if (usernames.contains(normalize(entry.getUsername()))) {
+                results[i] = failed(i, entry.getUsername(), "Username appears more than once in the import.");
+            } else if (emails.contains(normalize(entry.getEmail()))) {
+                results[i] = failed(i, entry.getUsername(), "Email appears more than once in the import.");
+            } else {
+                usernames.add(normalize(entry.getUsername()));
+                emails.add(normalize(entry.getEmail()));
+                accepted.add(i);
+            }
+        }
+        return accepted;
+    }
+
+    private void rejectExisting(List<UserImportEntry> entries, List<Integer> accepted, UserImportResult[] results) {
+        Set<String> takenUsernames = lookup(entries, accepted, UserImportEntry::getUsername,
+                chunk -> userRepository.findIdsByUsernameIn(chunk).stream()
+                        .map(UserIdRow::getUsername)
+                        .collect(Collectors.toList()));
+        Set<String> takenEmails = lookup(entries, accepted, UserImportEntry::getEmail, userRepository::findEmailsIn);
+        for (Iterator<Integer> it = accepted.iterator(); it.hasNext(); ) {
+            int i = it.next();
+            UserImportEntry entry = entries.get(i);
+            if (takenUsernames.contains(normalize(entry.getUsername()))) {
+                results[i] = failed(i, entry.getUsername(), "Username already exists.");
+                it.remove();
+            } else if (takenEmails.contains(normalize(entry.getEmail()))) {
+                results[i] = failed(i, entry.getUsername(), "Email already exists.");
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The normalized values, among those of the given entries, that the query found.
+     */
+    private static Set<String> lookup(List<UserImportEntry> entries, List<Integer> indexes,
+                                      Function<UserImportEntry, String> value,
+                                      Function<Collection<String>, List<String>> query) {
+        Set<String> found = new HashSet<>();
+        for (int from = 0; from < indexes.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>();
+            for (Integer i : indexes.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, indexes.size()))) {
+                chunk.add(value.apply(entries.get(i)));
+            }
+            for (String match : query.apply(chunk)) {
+                found.add(normalize(match));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return The password hashes, by entry index.
+     */
+    private String[] hash(List<UserImportEntry> entries, List<Integer> accepted) {
+        String[] hashes = new String[entries.size()];
+        try {
+            // A parallel stream started from a pool's task runs on that pool
+            hashingPool.submit(() -> accepted.parallelStream()
+                    .forEach(i -> hashes[i] = hasher.encode(entries.get(i).getPassword()))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not hash passwords", e.getCause());
+        }
+        return hashes;
+    }
+
+    /**
+     * @return The ids of the created users, by normalized username.
+     */
+    private Map<String, Integer> insert(List<UserImportEntry> entries, List<Integer> accepted, String[] hashes,
+                                        Role role) {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(INSERT_USER, accepted, jdbcBatchSize, (ps, i) -> {
+                UserImportEntry entry = entries.get(i);
+                ps.setString(1, entry.getUsername());
+                ps.setString(2, entry.getEmail());
+                ps.setString(3, hashes[i]);
+                ps.setBoolean(4, true);
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+            });
+
+            Map<String, Integer> ids = new HashMap<>();
+            for (int from = 0; from < accepted.size(); from += LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = new ArrayList<>();
+                for (Integer i : accepted.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, accepted.size()))) {
+                    chunk.add(entries.get(i).getUsername());
+                }
+                List<Object> args = new ArrayList<>(chunk.size() + 4);
+                args.addAll(Arrays.asList(role.getId(), true, now, now));
+                args.addAll(chunk);
+                jdbcTemplate.update(String.format(INSERT_USER_ROLES, String.join(", ", Collections.nCopies(chunk.size(), "?"))),
+                        args.toArray());
+                for (UserIdRow row : userRepository.findIdsByUsernameIn(chunk)) {
+                    ids.put(normalize(row.getUsername()), row.getId());
+                    // Delivered after the commit
+                    eventPublisher.publishEvent(new UserChangedEvent(row.getId(), row.getUsername()));
+                }
+            }
+            return ids;
+        });
+    }
+
+    // Usernames and emails are unique regardless of case in MySQL's default collation
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static UserImportResult failed(int index, String username, String error) {
+        return UserImportResult.builder()
+                .index(index)
+                .username(username)
+                .created(false)
+                .error(error)
+                .build();
+    }
+}
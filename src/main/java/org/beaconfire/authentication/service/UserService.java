@@ -3,13 +3,14 @@ package org.beaconfire.authentication.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.beaconfire.authentication.dto.user.UserRegistration;
+import org.beaconfire.authentication.event.UserChangedEvent;
 import org.beaconfire.authentication.exception.UserAlreadyExistsException;
 import org.beaconfire.authentication.model.Role;
 import org.beaconfire.authentication.model.User;
 import org.beaconfire.authentication.model.UserRole;
-import org.beaconfire.authentication.repository.RoleRepository;
 import org.beaconfire.authentication.repository.UserRepository;
 import org.beaconfire.authentication.repository.UserRoleRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,9 +21,10 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
     private static final String DEFAULT_ROLE_NAME = "ROLE_ONBOARDING";
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final UserRoleRepository userRoleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void registerUser(UserRegistration registration) throws UserAlreadyExistsException {
@@ -50,6 +52,7 @@ public class UserService {
 
         // Assign default role to the user
         assignDefaultRoleToUser(savedUser);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId(), savedUser.getUsername()));
 
         log.info("User {} registered successfully with default role.", registration.getUsername());
     }
@@ -62,15 +65,7 @@ public class UserService {
      */
     private void assignDefaultRoleToUser(User user) {
         // Find or create the default role
-        Role defaultRole = roleRepository.findByRoleName(DEFAULT_ROLE_NAME)
-                .orElseGet(() -> {
-                    log.info("Default role '{}' not found. Creating it.", DEFAULT_ROLE_NAME);
-                    Role newRole = Role.builder()
-                            .roleName(DEFAULT_ROLE_NAME)
-                            .roleDescription("Default role for registered users")
-                            .build();
-                    return roleRepository.save(newRole);
-                });
+        Role defaultRole = roleRegistry.getOrCreate(DEFAULT_ROLE_NAME, "Default role for registered users");
 
         // Create user-role association
         UserRole userRole = UserRole.builder()
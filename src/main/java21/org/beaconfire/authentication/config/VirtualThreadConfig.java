@@ -0,0 +1,38 @@
+package org.beaconfire.authentication.config;
+
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs request handling and {@code @Scheduled} jobs on virtual threads. Only compiled by the
+ * {@code java21} Maven profile.
+ * <p>
+ * Repository calls run on the calling thread, so a request or job that waits on the database
+ * unmounts from its carrier instead of holding a platform thread. The Tomcat thread pool then no
+ * longer caps concurrent requests: {@code server.tomcat.max-connections} does, and the Hikari pool
+ * queues database access. Password hashing and token introspection keep their bounded platform
+ * thread pools, because that work is CPU-bound and more threads would not make it faster.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Replaces Boot's scheduler, keeping its {@code spring.task.scheduling} settings.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(TaskSchedulerBuilder builder) {
+        ThreadPoolTaskScheduler scheduler = builder.build();
+        scheduler.setThreadFactory(Thread.ofVirtual().name(scheduler.getThreadNamePrefix(), 0).factory());
+        return scheduler;
+    }
+}
@@ -0,0 +1,106 @@
+package org.beaconfire.authentication.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.beaconfire.authentication.dto.auth.LoginResponse;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the bytes allocated per login by the typed token and response with the claim and
+ * response maps the login endpoint used to build.
+ */
+class LoginAllocationTest {
+
+    private static final List<String> ROLES = Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE");
+    private static final int ITERATIONS = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JwtTokenProvider jwtTokenProvider;
+    private com.sun.management.ThreadMXBean threads;
+
+    @BeforeEach
+    void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        jwtTokenProvider = new JwtTokenProvider();
+        jwtTokenProvider.setJwtExpirationInMs(3600000);
+        jwtTokenProvider.setJwtSecret("NiXTYNwyutkwyp34w3TYjb297yYUZCaCmr3YhDdT0W4=");
+    }
+
+    @Test
+    void testResponseSerializerAllocatesLessThanMap() throws Exception {
+        long typed = bytesPerCall(() -> objectMapper.writeValueAsBytes(typedResponse("token")));
+        long map = bytesPerCall(() -> objectMapper.writeValueAsBytes(mapResponse("token")));
+
+        assertTrue(typed < map, "serializer " + typed + " bytes, map " + map + " bytes");
+    }
+
+    @Test
+    void testTypedLoginAllocatesLessThanClaimMaps() throws Exception {
+        long typed = bytesPerCall(() -> objectMapper.writeValueAsBytes(
+                typedResponse(jwtTokenProvider.generateToken(42, "user1", "user1@email.com", ROLES))));
+        long map = bytesPerCall(() -> objectMapper.writeValueAsBytes(
+                mapResponse(jwtTokenProvider.generateTokenWithClaims(claims(42, "user1", "user1@email.com")))));
+
+        assertTrue(typed < map, "typed " + typed + " bytes, maps " + map + " bytes");
+    }
+
+    private static LoginResponse typedResponse(String token) {
+        return LoginResponse.builder()
+                .status("ok")
+                .type("account")
+                .currentAuthority(ROLES.get(0))
+                .token(token)
+                .refreshToken("refresh")
+                .build();
+    }
+
+    private static Map<String, Object> mapResponse(String token) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "ok");
+        response.put("type", "account");
+        response.put("currentAuthority", ROLES.get(0));
+        response.put("token", token);
+        response.put("refreshToken", "refresh");
+        return response;
+    }
+
+    private static Map<String, Object> claims(Integer userId, String username, String email) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", userId.toString());
+        claims.put("username", username);
+        claims.put("email", email);
+        claims.put("roles", ROLES);
+        return claims;
+    }
+
+    private long bytesPerCall(Call call) throws Exception {
+        // Warm up, so class loading and serializer lookup are not counted
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -1,30 +1,49 @@
 package org.beaconfire.authentication.controller;
 
 import org.beaconfire.authentication.dto.auth.AuthRequest;
-import org.beaconfire.authentication.dto.auth.AuthResponse;
+import org.beaconfire.authentication.dto.auth.LoginResponse;
+import org.beaconfire.authentication.dto.request.RefreshTokenRequest;
+import org.beaconfire.authentication.exception.TooManyRequestsException;
+import org.beaconfire.authentication.model.RefreshToken;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.model.UserRole;
+import org.beaconfire.authentication.repository.RefreshTokenRepository;
 import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.security.CustomUserPrincipal;
 import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.LoginThrottle;
+import org.beaconfire.authentication.service.RefreshTokenService;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class LoginControllerTest {
 
     private final UserRepository userRepository = mock(UserRepository.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final LoginThrottle loginThrottle = mock(LoginThrottle.class);
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
     private AuthenticationManager authenticationManager;
     private JwtTokenProvider tokenProvider;
     private LoginController loginController;
@@ -33,24 +52,16 @@ class LoginControllerTest {
     void setUp() {
         authenticationManager = mock(AuthenticationManager.class);
         tokenProvider = mock(JwtTokenProvider.class);
-        loginController = new LoginController(authenticationManager, tokenProvider, userRepository);
+        loginController = new LoginController(authenticationManager, tokenProvider, userRepository, refreshTokenService,
+                loginThrottle);
     }
 
     @Test
-    @Disabled
     void testAuthenticateUser_Success() {
         AuthRequest request = new AuthRequest("user1", "password123");
         Authentication auth = mock(Authentication.class);
-        org.springframework.security.core.userdetails.User mockUser =
-                new org.springframework.security.core.userdetails.User(
-                        "user1", "password123",
-                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
 
-        // Mock authentication
-        when(authenticationManager.authenticate(any())).thenReturn(auth);
-        when(auth.getPrincipal()).thenReturn(mockUser);
-
-        // Mock User entity and UserRepository
+        // User entity held by the authenticated principal
         org.beaconfire.authentication.model.User entityUser = org.beaconfire.authentication.model.User.builder()
                 .id(1)
                 .username("user1")
@@ -63,19 +74,26 @@ class LoginControllerTest {
         userRole.setRole(role);
         userRole.setUser(entityUser);
         entityUser.getUserRoles().add(userRole);
-        when(userRepository.findByUsername("user1")).thenReturn(java.util.Optional.of(entityUser));
 
-        // Mock token provider
-        when(tokenProvider.generateTokenWithClaims(any())).thenReturn("mock-jwt");
+        // Mock authentication
+        when(authenticationManager.authenticate(any())).thenReturn(auth);
+        when(auth.getPrincipal()).thenReturn(new CustomUserPrincipal(entityUser));
+
+        // Mock token provider and refresh tokens
+        when(tokenProvider.generateToken(1, "user1", "user1@email.com", Collections.singletonList("ROLE_USER")))
+                .thenReturn("mock-jwt");
+        when(refreshTokenService.issue(entityUser)).thenReturn("mock-refresh-token");
 
-        ResponseEntity<?> response = loginController.authenticateUser(request);
+        ResponseEntity<?> response = loginController.authenticateUser(request, httpRequest);
 
         assertEquals(200, response.getStatusCodeValue());
-        assertInstanceOf(AuthResponse.class, response.getBody());
-        AuthResponse authResponse = (AuthResponse) response.getBody();
-        assertEquals("mock-jwt", authResponse.getToken());
-        assertEquals("user1", authResponse.getUser().getUsername());
-        assertEquals("ROLE_USER", authResponse.getUser().getRole());
+        assertInstanceOf(LoginResponse.class, response.getBody());
+        LoginResponse loginResponse = (LoginResponse) response.getBody();
+        assertEquals("mock-jwt", loginResponse.getToken());
+        assertEquals("mock-refresh-token", loginResponse.getRefreshToken());
+        assertEquals("ROLE_USER", loginResponse.getCurrentAuthority());
+        // The user comes from the principal, not a second lookup
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -85,7 +103,7 @@ class LoginControllerTest {
         when(authenticationManager.authenticate(any()))
                 .thenThrow(new BadCredentialsException("Invalid credentials"));
 
-        ResponseEntity<?> response = loginController.authenticateUser(request);
+        ResponseEntity<?> response = loginController.authenticateUser(request, httpRequest);
 
         assertEquals(404, response.getStatusCodeValue());
         assertEquals("Invalid username or password.", response.getBody());
@@ -98,9 +116,59 @@ class LoginControllerTest {
         when(authenticationManager.authenticate(any()))
                 .thenThrow(new AuthenticationServiceException("Service unavailable"));
 
-        ResponseEntity<?> response = loginController.authenticateUser(request);
+        ResponseEntity<?> response = loginController.authenticateUser(request, httpRequest);
 
         assertEquals(500, response.getStatusCodeValue());
         assertEquals("Authentication failed due to server error.", response.getBody());
     }
+
+    @Test
+    void testAuthenticateUser_Throttled() {
+        AuthRequest request = new AuthRequest("user1", "password");
+        httpRequest.setRemoteAddr("10.0.0.1");
+
+        doThrow(new TooManyRequestsException("Too many login attempts, please try again later.", 30))
+                .when(loginThrottle).acquire("user1", "10.0.0.1");
+
+        assertThrows(TooManyRequestsException.class, () -> loginController.authenticateUser(request, httpRequest));
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    void testRefreshToken_OnlyActiveRoles() {
+        User user = User.builder()
+                .id(1)
+                .username("user1")
+                .email("user1@email.com")
+                .build();
+        user.getUserRoles().add(UserRole.builder()
+                .user(user)
+                .role(Role.builder().roleName("ROLE_HR").build())
+                .activeFlag(false)
+                .build());
+        user.getUserRoles().add(UserRole.builder()
+                .user(user)
+                .role(Role.builder().roleName("ROLE_EMPLOYEE").build())
+                .build());
+        RefreshToken stored = RefreshToken.builder()
+                .id(5)
+                .user(user)
+                .familyId("family")
+                .expirationDate(LocalDateTime.now().plusDays(1))
+                .build();
+        RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(anyInt(), any(LocalDateTime.class))).thenReturn(1);
+        LoginController refreshingController = new LoginController(authenticationManager, tokenProvider, userRepository,
+                new RefreshTokenService(refreshTokenRepository, 60000), loginThrottle);
+        when(tokenProvider.generateToken(1, "user1", "user1@email.com", Collections.singletonList("ROLE_EMPLOYEE")))
+                .thenReturn("mock-jwt");
+
+        ResponseEntity<?> response = refreshingController.refreshToken(new RefreshTokenRequest("refresh-token"));
+
+        assertEquals(200, response.getStatusCodeValue());
+        LoginResponse loginResponse = (LoginResponse) response.getBody();
+        assertEquals("mock-jwt", loginResponse.getToken());
+        assertEquals("ROLE_EMPLOYEE", loginResponse.getCurrentAuthority());
+    }
 }
@@ -0,0 +1,179 @@
+package org.beaconfire.authentication.controller;
+
+import org.beaconfire.authentication.dto.response.UserPageResponse;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.UserRoleRepository;
+import org.beaconfire.authentication.repository.projection.UserSummaryRow;
+import org.beaconfire.authentication.service.ChangeVersion;
+import org.beaconfire.authentication.service.RoleRegistry;
+import org.beaconfire.authentication.service.TokenEpochService;
+import org.beaconfire.authentication.service.UserBulkUpdateService;
+import org.beaconfire.authentication.service.UserExportService;
+import org.beaconfire.authentication.service.UserImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SecureControllerTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ChangeVersion changeVersion = mock(ChangeVersion.class);
+    private SecureController secureController;
+
+    @BeforeEach
+    void setUp() {
+        when(changeVersion.etag()).thenReturn("\"abc-1\"");
+        secureController = new SecureController(userRepository, mock(RoleRegistry.class),
+                mock(UserRoleRepository.class), mock(PasswordEncoder.class), mock(TokenEpochService.class),
+                mock(ApplicationEventPublisher.class), mock(UserExportService.class),
+                mock(UserImportService.class), mock(UserBulkUpdateService.class),
+                changeVersion);
+    }
+
+    @Test
+    void testGetUserList_ReadsEveryPage() {
+        List<UserSummaryRow> firstRows = new ArrayList<>();
+        for (int id = 1; id <= SecureController.MAX_PAGE_SIZE; id++) {
+            firstRows.add(row(id, "user" + id, id == 1 ? "ROLE_ADMIN" : null));
+        }
+        List<UserSummaryRow> lastRows = Collections.singletonList(
+                row(SecureController.MAX_PAGE_SIZE + 1, "last", "ROLE_HR"));
+        when(userRepository.findUserPage(eq(0), any(Pageable.class))).thenReturn(firstRows);
+        when(userRepository.findUserPage(eq(SecureController.MAX_PAGE_SIZE), any(Pageable.class))).thenReturn(lastRows);
+
+        ResponseEntity<List<Map<String, String>>> result = secureController.getUserList(webRequest());
+
+        List<Map<String, String>> users = result.getBody();
+        assertNotNull(users);
+        assertEquals(SecureController.MAX_PAGE_SIZE + 1, users.size());
+        assertEquals("1", users.get(0).get("userId"));
+        assertEquals("user1", users.get(0).get("username"));
+        assertEquals("ROLE_ADMIN", users.get(0).get("role"));
+        assertEquals("", users.get(1).get("role"));
+        assertEquals("last", users.get(SecureController.MAX_PAGE_SIZE).get("username"));
+        assertEquals("\"abc-1\"", result.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetUserList_NotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/secure/users");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc-1\"");
+
+        ResponseEntity<List<Map<String, String>>> result = secureController.getUserList(
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, result.getStatusCode());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testGetUserPage_FirstPageHasNextCursor() {
+        List<UserSummaryRow> rows = Arrays.asList(row(1, "alice", "ROLE_ADMIN"), row(2, "bob", null),
+                row(3, "carol", "ROLE_ONBOARDING"));
+        when(userRepository.findUserPage(eq(0), any(Pageable.class))).thenReturn(rows);
+
+        UserPageResponse page = secureController.getUserPage(null, 2, webRequest()).getBody();
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findUserPage(eq(0), pageable.capture());
+        assertEquals(3, pageable.getValue().getPageSize());
+        assertNotNull(page);
+        assertEquals(2, page.getUsers().size());
+        assertEquals("alice", page.getUsers().get(0).getUsername());
+        assertEquals("ROLE_ADMIN", page.getUsers().get(0).getRole());
+        assertEquals("", page.getUsers().get(1).getRole());
+        assertNotNull(page.getNext());
+
+        // The cursor continues after the last user of the page
+        List<UserSummaryRow> lastRows = Collections.singletonList(row(3, "carol", "ROLE_ONBOARDING"));
+        when(userRepository.findUserPage(eq(2), any(Pageable.class))).thenReturn(lastRows);
+        UserPageResponse last = secureController.getUserPage(page.getNext(), 2, webRequest()).getBody();
+
+        assertNotNull(last);
+        assertEquals(1, last.getUsers().size());
+        assertEquals(3, last.getUsers().get(0).getUserId());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    void testGetUserPage_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> secureController.getUserPage("not a cursor", 10, webRequest()));
+        assertThrows(IllegalArgumentException.class, () -> secureController.getUserPage("LTE", 10, webRequest()));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testGetUserPage_InvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> secureController.getUserPage(null, 0, webRequest()));
+        assertThrows(IllegalArgumentException.class,
+                () -> secureController.getUserPage(null, SecureController.MAX_PAGE_SIZE + 1, webRequest()));
+        verify(userRepository, never()).findUserPage(anyInt(), any(Pageable.class));
+    }
+
+    @Test
+    void testGetUserPage_NotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/secure/users/page");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc-1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<UserPageResponse> result = secureController.getUserPage(null, 100,
+                new ServletWebRequest(request, response));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, result.getStatusCode());
+        assertEquals("\"abc-1\"", result.getHeaders().getETag());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testGetUserPage_ChangedSinceETag() {
+        when(userRepository.findUserPage(eq(0), any(Pageable.class))).thenReturn(Collections.emptyList());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/secure/users/page");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc-0\"");
+
+        ResponseEntity<UserPageResponse> result = secureController.getUserPage(null, 100,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals("\"abc-1\"", result.getHeaders().getETag());
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/secure/users/page"), new MockHttpServletResponse());
+    }
+
+    private static UserSummaryRow row(Integer id, String username, String roleName) {
+        UserSummaryRow row = mock(UserSummaryRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getUsername()).thenReturn(username);
+        when(row.getRoleName()).thenReturn(roleName);
+        return row;
+    }
+}
@@ -0,0 +1,56 @@
+package org.beaconfire.authentication.controller;
+
+import org.beaconfire.authentication.dto.request.SigningKeyRequest;
+import org.beaconfire.authentication.dto.response.SigningKeyResponse;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SigningKeyControllerTest {
+
+    private static final String FIRST_SECRET = "NiXTYNwyutkwyp34w3TYjb297yYUZCaCmr3YhDdT0W4=";
+    private static final String SECOND_SECRET = "q1Jr0pYt3H3nZ0Qm2b8YwXh5cV7uK9sL4eR6tA1dF0g=";
+
+    private final VerifiedTokenCache verifiedTokenCache = mock(VerifiedTokenCache.class);
+    private JwtTokenProvider tokenProvider;
+    private SigningKeyController signingKeyController;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        tokenProvider.setJwtKeyId("first");
+        tokenProvider.setJwtSecret(FIRST_SECRET);
+        signingKeyController = new SigningKeyController(tokenProvider, verifiedTokenCache);
+    }
+
+    @Test
+    void testRetireKeyDropsVerifiedTokens() {
+        tokenProvider.getKeyRing().addKey("second", SECOND_SECRET);
+        tokenProvider.getKeyRing().promoteKey("second");
+
+        ResponseEntity<SigningKeyResponse> response = signingKeyController.retireKey("first");
+
+        assertEquals("second", response.getBody().getActiveKeyId());
+        assertFalse(response.getBody().getKeyIds().contains("first"));
+        verify(verifiedTokenCache).invalidateAll();
+    }
+
+    @Test
+    void testHs256KeyRequiresSecret() {
+        SigningKeyRequest request = SigningKeyRequest.builder().keyId("second").algorithm("HS256").build();
+
+        assertThrows(IllegalArgumentException.class, () -> signingKeyController.addKey(request));
+        request.setAlgorithm(null);
+        request.setSecret(" ");
+        assertThrows(IllegalArgumentException.class, () -> signingKeyController.addKey(request));
+        assertFalse(tokenProvider.getKeyRing().getKeyIds().contains("second"));
+    }
+}
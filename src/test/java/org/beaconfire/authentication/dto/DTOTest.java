@@ -1,5 +1,7 @@
 package org.beaconfire.authentication.dto;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.beaconfire.authentication.dto.auth.LoginResponse;
 import org.beaconfire.authentication.dto.request.TokenGenerationRequest;
 import org.beaconfire.authentication.dto.response.ErrorResponse;
 import org.beaconfire.authentication.dto.response.RegistrationResponse;
@@ -34,6 +36,21 @@ class DTOTest {
         assertThat(request.hashCode()).isEqualTo(request2.hashCode());
     }
 
+    @Test
+    void testLoginResponseSerialization() throws Exception {
+        LoginResponse response = LoginResponse.builder()
+                .status("ok")
+                .type("account")
+                .currentAuthority("ROLE_HR")
+                .token("jwt")
+                .build();
+
+        String json = new ObjectMapper().writeValueAsString(response);
+
+        assertThat(json).isEqualTo("{\"status\":\"ok\",\"type\":\"account\",\"currentAuthority\":\"ROLE_HR\","
+                + "\"token\":\"jwt\",\"refreshToken\":null}");
+    }
+
     @Test
     void testTokenResponse() {
         TokenResponse response = TokenResponse.builder()
@@ -0,0 +1,14 @@
+package org.beaconfire.authentication.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TooManyRequestsExceptionTest {
+    @Test
+    public void testTooManyRequestsException() {
+        TooManyRequestsException ex = new TooManyRequestsException("Too many requests", 2);
+        assertEquals("Too many requests", ex.getMessage());
+        assertEquals(2, ex.getRetryAfterSeconds());
+    }
+}
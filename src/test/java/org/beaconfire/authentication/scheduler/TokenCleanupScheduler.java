@@ -1,5 +1,6 @@
 package org.beaconfire.authentication.scheduler;
 
+import org.beaconfire.authentication.service.RefreshTokenService;
 import org.beaconfire.authentication.service.RegistrationTokenService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +18,9 @@ class TokenCleanupSchedulerTest {
     @Mock
     private RegistrationTokenService registrationTokenService;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private TokenCleanupScheduler tokenCleanupScheduler;
 
@@ -29,6 +33,16 @@ class TokenCleanupSchedulerTest {
         verify(registrationTokenService, times(1)).cleanupExpiredTokens();
     }
 
+    @Test
+    void testCleanupExpiredRefreshTokens() {
+        // When
+        tokenCleanupScheduler.cleanupExpiredRefreshTokens();
+
+        // Then
+        verify(refreshTokenService, times(1)).cleanupExpiredTokens();
+        verifyNoInteractions(registrationTokenService);
+    }
+
     @Test
     void testScheduledAnnotationExists() {
         // This test verifies that the method has the @Scheduled annotation
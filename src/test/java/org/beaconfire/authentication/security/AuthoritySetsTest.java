@@ -0,0 +1,40 @@
+package org.beaconfire.authentication.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthoritySetsTest {
+
+    @Test
+    void testSameRolesShareOneSet() {
+        Set<GrantedAuthority> first = AuthoritySets.of(Arrays.asList("ROLE_HR", "role_employee"));
+        Set<GrantedAuthority> second = AuthoritySets.of(Arrays.asList("ROLE_EMPLOYEE", "ROLE_HR", "ROLE_HR"));
+
+        assertSame(first, second);
+        assertEquals(2, first.size());
+        assertThrows(UnsupportedOperationException.class, () -> first.clear());
+    }
+
+    @Test
+    void testAuthorityIsCanonical() {
+        assertSame(AuthoritySets.authority("ROLE_HR"), AuthoritySets.authority("role_hr"));
+        assertEquals("ROLE_HR", AuthoritySets.authority("role_hr").getAuthority());
+        assertTrue(AuthoritySets.of(Collections.singletonList("ROLE_HR")).contains(AuthoritySets.authority("ROLE_HR")));
+    }
+
+    @Test
+    void testPrincipalComputesAuthoritiesOnce() {
+        CustomUserPrincipal principal = CustomUserPrincipal.fromClaims(1, "user1", null, Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE"));
+        CustomUserPrincipal other = CustomUserPrincipal.fromClaims(2, "user2", null, Arrays.asList("ROLE_EMPLOYEE", "ROLE_HR"));
+
+        assertSame(principal.getAuthorities(), principal.getAuthorities());
+        assertSame(principal.getAuthorities(), other.getAuthorities());
+        assertTrue(CustomUserPrincipal.fromClaims(3, "user3", null, Collections.emptyList()).getAuthorities().isEmpty());
+    }
+}
@@ -0,0 +1,170 @@
+package org.beaconfire.authentication.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class Hs256FastVerifierTest {
+
+    private static final String SECRET = "NiXTYNwyutkwyp34w3TYjb297yYUZCaCmr3YhDdT0W4=";
+
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtKeyRing keyRing;
+    private final Hs256FastVerifier verifier = new Hs256FastVerifier();
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider();
+        jwtTokenProvider.setJwtExpirationInMs(3600000);
+        jwtTokenProvider.setJwtSecret(SECRET);
+        keyRing = jwtTokenProvider.getKeyRing();
+    }
+
+    private ParsedToken parseWithJjwt(String token) {
+        return ParsedToken.fromClaims(keyRing.getParser().parseSignedClaims(token).getPayload());
+    }
+
+    private static Map<String, Object> loginClaims() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "42");
+        claims.put("username", "user1");
+        claims.put("email", "user1@email.com");
+        claims.put("roles", Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE"));
+        return claims;
+    }
+
+    @Test
+    void testLoginTokenMatchesJjwt() {
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+
+        ParsedToken parsed = verifier.verify(keyRing, token);
+
+        assertNotNull(parsed);
+        assertEquals(parseWithJjwt(token), parsed);
+        assertEquals(42, parsed.getUserId());
+        assertEquals("user1", parsed.getUsername());
+        assertEquals(Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE"), parsed.getRoles());
+        assertNotNull(parsed.getTokenId());
+    }
+
+    @Test
+    void testUsernameTokenMatchesJjwt() {
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(new User("testUser", "password", Collections.emptyList()));
+        String token = jwtTokenProvider.generateToken(authentication);
+
+        ParsedToken parsed = verifier.verify(keyRing, token);
+
+        assertNotNull(parsed);
+        assertEquals(parseWithJjwt(token), parsed);
+        assertEquals("testUser", parsed.getUsername());
+    }
+
+    @Test
+    void testLegacyTokenWithoutKeyId() {
+        String token = Jwts.builder()
+                .subject("legacyUser")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(keyRing.getActiveKey().getSigningKey())
+                .compact();
+
+        ParsedToken parsed = verifier.verify(keyRing, token);
+
+        assertNotNull(parsed);
+        assertEquals("legacyUser", parsed.getUsername());
+    }
+
+    @Test
+    void testTamperedSignature() {
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+        char last = token.charAt(token.length() - 2);
+        String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+
+        assertEquals(TokenFailureReason.INVALID_SIGNATURE, verifier.verify(keyRing, tampered).getFailureReason());
+    }
+
+    @Test
+    void testTamperedPayload() {
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+        String[] parts = token.split("\\.");
+        String forged = jwtTokenProvider.generateTokenWithClaims(new HashMap<>(Collections.singletonMap("sub", "1")));
+        String tampered = parts[0] + "." + forged.split("\\.")[1] + "." + parts[2];
+
+        assertEquals(TokenFailureReason.INVALID_SIGNATURE, verifier.verify(keyRing, tampered).getFailureReason());
+    }
+
+    @Test
+    void testNonAsciiPayloadFallsBack() {
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+        int payloadStart = token.indexOf('.') + 1;
+        // Same low byte as the original char, so a plain cast would keep the signature valid
+        char widened = (char) (0x100 | token.charAt(payloadStart));
+        String tampered = token.substring(0, payloadStart) + widened + token.substring(payloadStart + 1);
+
+        assertNull(verifier.verify(keyRing, tampered));
+    }
+
+    @Test
+    void testRetiredKeyFallsBack() {
+        keyRing.addKey("second", "q1Jr0pYt3H3nZ0Qm2b8YwXh5cV7uK9sL4eR6tA1dF0g=");
+        String firstKeyId = keyRing.getActiveKey().getKeyId();
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+        assertNotNull(verifier.verify(keyRing, token));
+        keyRing.promoteKey("second");
+
+        verifier.forget(keyRing.retireKey(firstKeyId).getVerificationKey());
+
+        assertNull(verifier.verify(keyRing, token));
+    }
+
+    @Test
+    void testExpiredToken() {
+        String token = Jwts.builder()
+                .header().keyId(keyRing.getActiveKey().getKeyId()).and()
+                .subject("user1")
+                .issuedAt(new Date(System.currentTimeMillis() - 120000))
+                .expiration(new Date(System.currentTimeMillis() - 60000))
+                .signWith(keyRing.getActiveKey().getSigningKey())
+                .compact();
+
+        assertEquals(TokenFailureReason.EXPIRED, verifier.verify(keyRing, token).getFailureReason());
+    }
+
+    @Test
+    void testUnexpectedShapesFallBack() {
+        Map<String, Object> nested = loginClaims();
+        nested.put("address", Collections.singletonMap("city", "Somewhere"));
+        Map<String, Object> escaped = loginClaims();
+        escaped.put("username", "quote\"user");
+        Map<String, Object> notBefore = loginClaims();
+        notBefore.put("nbf", System.currentTimeMillis() / 1000);
+
+        assertNull(verifier.verify(keyRing, jwtTokenProvider.generateTokenWithClaims(nested)));
+        assertNull(verifier.verify(keyRing, jwtTokenProvider.generateTokenWithClaims(escaped)));
+        assertNull(verifier.verify(keyRing, jwtTokenProvider.generateTokenWithClaims(notBefore)));
+        assertNull(verifier.verify(keyRing, "not-a-token"));
+        assertNull(verifier.verify(keyRing, "a.b.c"));
+    }
+
+    @Test
+    void testAsymmetricTokenFallsBack() {
+        keyRing.addKey("ec-1", AsymmetricKeys.generate(AsymmetricKeys.ES256), AsymmetricKeys.ES256);
+        keyRing.promoteKey("ec-1");
+        String token = jwtTokenProvider.generateTokenWithClaims(loginClaims());
+
+        assertNull(verifier.verify(keyRing, token));
+        assertTrue(jwtTokenProvider.parseToken(token).isValid());
+    }
+}
@@ -0,0 +1,146 @@
+package org.beaconfire.authentication.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    private static final String FIRST_SECRET = "NiXTYNwyutkwyp34w3TYjb297yYUZCaCmr3YhDdT0W4=";
+    private static final String SECOND_SECRET = "q1Jr0pYt3H3nZ0Qm2b8YwXh5cV7uK9sL4eR6tA1dF0g=";
+
+    private JwtKeyRing keyRing;
+
+    @BeforeEach
+    void setUp() {
+        keyRing = new JwtKeyRing("first", FIRST_SECRET);
+    }
+
+    private String sign(JwtKeyRing.KeyEntry key, String subject) {
+        return Jwts.builder()
+                .header().keyId(key.getKeyId()).and()
+                .subject(subject)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(key.getSigningKey())
+                .compact();
+    }
+
+    @Test
+    void testTokenWithoutKeyIdUsesInitialKey() {
+        String token = Jwts.builder()
+                .subject("legacy")
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(FIRST_SECRET)))
+                .compact();
+
+        assertEquals("legacy", keyRing.getParser().parseSignedClaims(token).getPayload().getSubject());
+    }
+
+    @Test
+    void testRotation() {
+        String oldToken = sign(keyRing.getActiveKey(), "old");
+
+        keyRing.addKey("second", SECOND_SECRET);
+        assertEquals("first", keyRing.getActiveKey().getKeyId());
+
+        keyRing.promoteKey("second");
+        String newToken = sign(keyRing.getActiveKey(), "new");
+        assertEquals("second", keyRing.getActiveKey().getKeyId());
+
+        // Both keys verify while they are in the ring
+        assertEquals("old", keyRing.getParser().parseSignedClaims(oldToken).getPayload().getSubject());
+        assertEquals("new", keyRing.getParser().parseSignedClaims(newToken).getPayload().getSubject());
+
+        keyRing.retireKey("first");
+        assertThrows(Exception.class, () -> keyRing.getParser().parseSignedClaims(oldToken));
+        assertEquals("new", keyRing.getParser().parseSignedClaims(newToken).getPayload().getSubject());
+    }
+
+    @Test
+    void testActiveKeyCannotBeRetired() {
+        assertThrows(IllegalArgumentException.class, () -> keyRing.retireKey("first"));
+    }
+
+    @Test
+    void testInvalidKeyOperations() {
+        assertThrows(IllegalArgumentException.class, () -> keyRing.addKey("first", SECOND_SECRET));
+        assertThrows(IllegalArgumentException.class, () -> keyRing.addKey("weak", "c2hvcnQ="));
+        assertThrows(IllegalArgumentException.class, () -> keyRing.promoteKey("missing"));
+    }
+
+    @Test
+    void testAsymmetricKeys() {
+        keyRing.addKey("ec", AsymmetricKeys.generate(AsymmetricKeys.ES256), AsymmetricKeys.ES256);
+        keyRing.addKey("ed", AsymmetricKeys.generate(AsymmetricKeys.EDDSA), AsymmetricKeys.EDDSA);
+
+        keyRing.promoteKey("ec");
+        String ecToken = sign(keyRing.getActiveKey(), "ec-user");
+        keyRing.promoteKey("ed");
+        String edToken = sign(keyRing.getActiveKey(), "ed-user");
+
+        assertEquals("ES256", keyRing.getParser().parseSignedClaims(ecToken).getHeader().getAlgorithm());
+        assertEquals("ec-user", keyRing.getParser().parseSignedClaims(ecToken).getPayload().getSubject());
+        assertEquals("EdDSA", keyRing.getParser().parseSignedClaims(edToken).getHeader().getAlgorithm());
+        assertEquals("ed-user", keyRing.getParser().parseSignedClaims(edToken).getPayload().getSubject());
+    }
+
+    @Test
+    void testPublishedKeys() {
+        KeyPair keyPair = AsymmetricKeys.generate(AsymmetricKeys.ES256);
+        String emptyETag = keyRing.getPublishedKeys().getETag();
+        assertEquals("{\"keys\":[]}", keyRing.getPublishedKeys().getJson());
+
+        keyRing.addKey("ec", keyPair, AsymmetricKeys.ES256);
+        JwtKeyRing.PublishedKeys published = keyRing.getPublishedKeys();
+
+        // Only the public key is published, never the HMAC secret
+        assertTrue(published.getJson().contains("\"kid\":\"ec\""));
+        assertTrue(published.getJson().contains("\"alg\":\"ES256\""));
+        assertFalse(published.getJson().contains("\"d\""));
+        assertFalse(published.getJson().contains("\"first\""));
+        assertNotEquals(emptyETag, published.getETag());
+        assertSame(published, keyRing.getPublishedKeys());
+
+        // Decoding the same key pair gives the same published keys on another node
+        JwtKeyRing otherNode = new JwtKeyRing("first", FIRST_SECRET);
+        otherNode.addKey("ec", AsymmetricKeys.decode(AsymmetricKeys.ES256,
+                Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()),
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())), AsymmetricKeys.ES256);
+        assertEquals(published.getETag(), otherNode.getPublishedKeys().getETag());
+
+        keyRing.retireKey("ec");
+        assertEquals(emptyETag, keyRing.getPublishedKeys().getETag());
+    }
+
+    @Test
+    void testDecodeRejectsForeignKeys() throws Exception {
+        KeyPair keyPair = AsymmetricKeys.generate(AsymmetricKeys.ES256);
+        KeyPair otherPair = AsymmetricKeys.generate(AsymmetricKeys.ES256);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp384r1"));
+        KeyPair p384 = generator.generateKeyPair();
+
+        assertThrows(IllegalArgumentException.class, () -> AsymmetricKeys.decode(AsymmetricKeys.ES256,
+                encode(keyPair.getPrivate()), encode(otherPair.getPublic())));
+        assertThrows(IllegalArgumentException.class, () -> AsymmetricKeys.decode(AsymmetricKeys.ES256,
+                encode(p384.getPrivate()), encode(p384.getPublic())));
+        KeyPair edPair = AsymmetricKeys.generate(AsymmetricKeys.EDDSA);
+        assertThrows(IllegalArgumentException.class, () -> AsymmetricKeys.decode(AsymmetricKeys.EDDSA,
+                encode(edPair.getPrivate()), encode(AsymmetricKeys.generate(AsymmetricKeys.EDDSA).getPublic())));
+        assertNotNull(AsymmetricKeys.decode(AsymmetricKeys.EDDSA, encode(edPair.getPrivate()), encode(edPair.getPublic())));
+    }
+
+    private static String encode(Key key) {
+        return Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+}
@@ -10,8 +10,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 
 import javax.crypto.SecretKey;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -53,4 +56,61 @@ public class JwtTokenProviderTest {
         assertEquals("testUser", claims.getSubject());
         assertTrue(claims.getExpiration().after(new Date()));
     }
+
+    @Test
+    void testGenerateLoginToken() {
+        String token = jwtTokenProvider.generateToken(7, "user7", "user7@email.com",
+                Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE"));
+
+        ParsedToken parsed = jwtTokenProvider.parseToken(token);
+
+        assertTrue(parsed.isValid());
+        assertEquals("7", parsed.getSubject());
+        assertEquals(7, parsed.getUserId());
+        assertEquals("user7", parsed.getUsername());
+        assertEquals("user7@email.com", parsed.getEmail());
+        assertEquals(Arrays.asList("ROLE_HR", "ROLE_EMPLOYEE"), parsed.getRoles());
+        assertNotNull(parsed.getTokenId());
+        assertTrue(parsed.getExpiration().after(new Date()));
+    }
+
+    @Test
+    void testParseTokenWithClaims() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "42");
+        claims.put("username", "testUser");
+        claims.put("email", "test@example.com");
+        claims.put("roles", Collections.singleton("ROLE_HR"));
+
+        String jwt = jwtTokenProvider.generateTokenWithClaims(claims);
+        ParsedToken token = jwtTokenProvider.parseToken(jwt);
+
+        assertEquals(jwtTokenProvider.getKeyRing().getActiveKey().getKeyId(),
+                jwtTokenProvider.getKeyRing().getParser().parseSignedClaims(jwt).getHeader().getKeyId());
+        assertTrue(token.isValid());
+        assertNull(token.getFailureReason());
+        assertEquals("42", token.getSubject());
+        assertEquals(42, token.getUserId());
+        assertEquals("testUser", token.getUsername());
+        assertEquals("test@example.com", token.getEmail());
+        assertEquals(Collections.singletonList("ROLE_HR"), token.getRoles());
+        assertTrue(token.getExpiration().after(new Date()));
+    }
+
+    @Test
+    void testParseTokenFailures() {
+        SecretKey otherKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode("q1Jr0pYt3H3nZ0Qm2b8YwXh5cV7uK9sL4eR6tA1dF0g="));
+        String forged = Jwts.builder().subject("testUser").signWith(otherKey).compact();
+        String expired = Jwts.builder()
+                .subject("testUser")
+                .expiration(new Date(System.currentTimeMillis() - 60000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(testJwtSecret)))
+                .compact();
+
+        assertEquals(TokenFailureReason.MISSING, jwtTokenProvider.parseToken("").getFailureReason());
+        assertEquals(TokenFailureReason.MALFORMED, jwtTokenProvider.parseToken("not-a-jwt").getFailureReason());
+        assertEquals(TokenFailureReason.INVALID_SIGNATURE, jwtTokenProvider.parseToken(forged).getFailureReason());
+        assertEquals(TokenFailureReason.EXPIRED, jwtTokenProvider.parseToken(expired).getFailureReason());
+        assertFalse(jwtTokenProvider.validateToken(forged));
+    }
 }
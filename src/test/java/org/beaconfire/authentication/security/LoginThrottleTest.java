@@ -0,0 +1,67 @@
+package org.beaconfire.authentication.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.beaconfire.authentication.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBucketAllowsBurstThenRefills() {
+        // 3 attempts, refilled completely every 3 seconds: one attempt per second
+        LoginThrottle.Limiter limiter = new LoginThrottle.Limiter(3, 3000, 60000, 100);
+        long now = 0;
+
+        assertEquals(0, limiter.tryAcquire("user1", now));
+        assertEquals(0, limiter.tryAcquire("user1", now));
+        assertEquals(0, limiter.tryAcquire("user1", now));
+        long wait = limiter.tryAcquire("user1", now);
+        assertEquals(SECOND, wait);
+
+        // Other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("user2", now));
+
+        assertEquals(0, limiter.tryAcquire("user1", now + wait));
+        assertTrue(limiter.tryAcquire("user1", now + wait) > 0);
+        // A bucket never holds more than its capacity
+        now += 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("user1", now));
+        }
+        assertTrue(limiter.tryAcquire("user1", now) > 0);
+    }
+
+    @Test
+    void testThrottleRejectsPerUsernameAndIp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LoginThrottle throttle = new LoginThrottle(true, 2, 60000, 3, 60000, 600000, 100, meterRegistry);
+
+        throttle.acquire("user1", "10.0.0.1");
+        throttle.acquire("USER1", "10.0.0.2");
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> throttle.acquire("user1", "10.0.0.3"));
+        assertEquals(30, ex.getRetryAfterSeconds());
+
+        throttle.acquire("user2", "10.0.0.1");
+        throttle.acquire("user3", "10.0.0.1");
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("user4", "10.0.0.1"));
+
+        assertEquals(1, meterRegistry.get("login.throttled").tag("key", "username").counter().count());
+        assertEquals(1, meterRegistry.get("login.throttled").tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void testDisabled() {
+        LoginThrottle throttle = new LoginThrottle(false, 1, 60000, 1, 60000, 600000, 100, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 10; i++) {
+            throttle.acquire("user1", "10.0.0.1");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.beaconfire.authentication.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectPoolTest {
+
+    @Test
+    void testReleasedInstanceIsReused() {
+        AtomicInteger created = new AtomicInteger();
+        ObjectPool<Object> pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 2);
+
+        Object first = pool.borrow();
+        pool.release(first);
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void testKeepsAtMostMaxIdle() {
+        AtomicInteger created = new AtomicInteger();
+        ObjectPool<Integer> pool = new ObjectPool<>(created::incrementAndGet, 2);
+
+        Integer a = pool.borrow();
+        Integer b = pool.borrow();
+        Integer c = pool.borrow();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertEquals(a, pool.borrow());
+        assertEquals(b, pool.borrow());
+        // c was dropped, so a new instance is created
+        assertEquals(4, pool.borrow());
+    }
+}
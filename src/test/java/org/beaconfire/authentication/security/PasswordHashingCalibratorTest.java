@@ -0,0 +1,31 @@
+package org.beaconfire.authentication.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PasswordHashingCalibratorTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void testBcryptStrengthDoublesPerStep() {
+        // 60 ms at strength 10: 120 ms at 11, 240 ms at 12, 480 ms at 13
+        assertEquals(12, PasswordHashingCalibrator.bcryptStrength(60 * MS, 10, 250 * MS, 14));
+        assertEquals(13, PasswordHashingCalibrator.bcryptStrength(60 * MS, 10, 480 * MS, 14));
+    }
+
+    @Test
+    void testBcryptStrengthBounds() {
+        // A slow node keeps the minimum, a fast one stops at the maximum
+        assertEquals(10, PasswordHashingCalibrator.bcryptStrength(400 * MS, 10, 250 * MS, 14));
+        assertEquals(14, PasswordHashingCalibrator.bcryptStrength(MS, 10, 250 * MS, 14));
+    }
+
+    @Test
+    void testArgon2Iterations() {
+        assertEquals(5, PasswordHashingCalibrator.argon2Iterations(50 * MS, 250 * MS, 2, 10));
+        assertEquals(2, PasswordHashingCalibrator.argon2Iterations(200 * MS, 250 * MS, 2, 10));
+        assertEquals(10, PasswordHashingCalibrator.argon2Iterations(MS, 250 * MS, 2, 10));
+    }
+}
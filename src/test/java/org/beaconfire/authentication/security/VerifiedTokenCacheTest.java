@@ -0,0 +1,68 @@
+package org.beaconfire.authentication.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCache(true, 100, 60000, meterRegistry);
+    }
+
+    private static ParsedToken parsed(Date expiration) {
+        return ParsedToken.builder().username("user1").issuedAt(new Date()).expiration(expiration).build();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "verifiedTokens").tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    void testHitAfterPut() {
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken("user1", null, Collections.emptyList());
+
+        assertNull(cache.get("token"));
+        cache.put("token", authentication, parsed(new Date(System.currentTimeMillis() + 60000)));
+
+        assertSame(authentication, cache.get("token").getAuthentication());
+        assertNull(cache.get("other-token"));
+        assertEquals(1, gets("hit"));
+        assertEquals(2, gets("miss"));
+    }
+
+    @Test
+    void testExpiredTokenIsNotCached() {
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken("user1", null, Collections.emptyList());
+
+        cache.put("token", authentication, parsed(new Date(System.currentTimeMillis() - 1000)));
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testDisabledCache() {
+        VerifiedTokenCache disabled = new VerifiedTokenCache(false, 100, 60000, new SimpleMeterRegistry());
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken("user1", null, Collections.emptyList());
+
+        disabled.put("token", authentication, parsed(new Date(System.currentTimeMillis() + 60000)));
+
+        assertNull(disabled.get("token"));
+    }
+}
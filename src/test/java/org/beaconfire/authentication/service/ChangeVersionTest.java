@@ -0,0 +1,126 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.model.DataVersion;
+import org.beaconfire.authentication.repository.DataVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChangeVersionTest {
+
+    private final DataVersionRepository dataVersionRepository = mock(DataVersionRepository.class);
+    private ChangeVersion changeVersion;
+
+    @BeforeEach
+    void setUp() {
+        changeVersion = new ChangeVersion(dataVersionRepository);
+        when(dataVersionRepository.increment("users")).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.unbindResourceIfPossible(changeVersion);
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @Test
+    void testEveryNodeDerivesTheSameEtag() {
+        when(dataVersionRepository.findVersion("users")).thenReturn(7L);
+
+        String etag = changeVersion.etag();
+
+        assertEquals("\"7\"", etag);
+        assertEquals(etag, new ChangeVersion(dataVersionRepository).etag());
+        // Cached until a change or the next check
+        assertEquals(etag, changeVersion.etag());
+        verify(dataVersionRepository, times(2)).findVersion("users");
+    }
+
+    @Test
+    void testChangedOutsideTransaction() {
+        when(dataVersionRepository.findVersion("users")).thenReturn(7L, 8L);
+        String etag = changeVersion.etag();
+
+        changeVersion.changed();
+
+        verify(dataVersionRepository).increment("users");
+        assertEquals("\"7\"", etag);
+        assertEquals("\"8\"", changeVersion.etag());
+    }
+
+    @Test
+    void testIncreasedOncePerTransactionBeforeCommit() {
+        when(dataVersionRepository.findVersion("users")).thenReturn(7L, 8L);
+        String etag = changeVersion.etag();
+        beginTransaction();
+
+        changeVersion.onUserChanged(new UserChangedEvent(1, "user1"));
+        changeVersion.onUserChanged(new UserChangedEvent(2, "user2"));
+
+        verify(dataVersionRepository, never()).increment(any());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).beforeCommit(false);
+        verify(dataVersionRepository).increment("users");
+        assertEquals(etag, changeVersion.etag());
+        synchronizations.get(0).afterCommit();
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals("\"8\"", changeVersion.etag());
+    }
+
+    @Test
+    void testRollbackKeepsEtag() {
+        when(dataVersionRepository.findVersion("users")).thenReturn(7L);
+        String etag = changeVersion.etag();
+        beginTransaction();
+
+        changeVersion.changed();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(etag, changeVersion.etag());
+        verify(dataVersionRepository, never()).increment(any());
+        verify(dataVersionRepository, times(1)).findVersion("users");
+    }
+
+    @Test
+    void testSyncNoticesChangesFromOtherNodes() {
+        when(dataVersionRepository.findVersion("users")).thenReturn(7L, 7L, 8L);
+
+        changeVersion.sync();
+        String etag = changeVersion.etag();
+        changeVersion.sync();
+        assertEquals(etag, changeVersion.etag());
+        changeVersion.sync();
+        assertEquals("\"8\"", changeVersion.etag());
+    }
+
+    @Test
+    void testInitCreatesCounter() {
+        changeVersion.init();
+
+        verify(dataVersionRepository).save(any(DataVersion.class));
+    }
+}
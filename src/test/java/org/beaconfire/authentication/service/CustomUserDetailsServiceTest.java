@@ -1,12 +1,15 @@
 package org.beaconfire.authentication.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.beaconfire.authentication.event.UserChangedEvent;
 import org.beaconfire.authentication.model.Role;
 import org.beaconfire.authentication.model.User;
 import org.beaconfire.authentication.model.UserRole;
 import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserCredentialRow;
+import org.beaconfire.authentication.security.CustomUserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.GrantedAuthority;
@@ -14,12 +17,17 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CustomUserDetailsServiceTest {
@@ -27,12 +35,55 @@ class CustomUserDetailsServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
     private CustomUserDetailsService customUserDetailsService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        customUserDetailsService = new CustomUserDetailsService(userRepository, true, 100, 60000,
+                true, 100, 60000, new SimpleMeterRegistry());
+    }
+
+    // The rows findCredentialsByUsername returns for the user
+    private static List<UserCredentialRow> credentials(User user) {
+        List<UserCredentialRow> rows = new ArrayList<>();
+        for (UserRole userRole : user.getUserRoles()) {
+            if (userRole.isActiveRole()) {
+                rows.add(row(user, userRole.getRoleName()));
+            }
+        }
+        if (rows.isEmpty()) {
+            rows.add(row(user, null));
+        }
+        return rows;
+    }
+
+    private static UserCredentialRow row(User user, String roleName) {
+        return new UserCredentialRow() {
+            public Integer getId() {
+                return user.getId();
+            }
+
+            public String getUsername() {
+                return user.getUsername();
+            }
+
+            public String getEmail() {
+                return user.getEmail();
+            }
+
+            public String getPassword() {
+                return user.getPassword();
+            }
+
+            public Boolean getActiveFlag() {
+                return user.getActiveFlag();
+            }
+
+            public String getRoleName() {
+                return roleName;
+            }
+        };
     }
 
     @Test
@@ -59,7 +110,7 @@ class CustomUserDetailsServiceTest {
 
         user.getUserRoles().add(userRole);
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(credentials(user));
 
         UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
 
@@ -97,7 +148,7 @@ class CustomUserDetailsServiceTest {
         user.getUserRoles().add(userRole);
 
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(credentials(user));
 
         // When
         UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
@@ -108,11 +159,37 @@ class CustomUserDetailsServiceTest {
         assertEquals("ROLE_EMPLOYEE", authorities.get(0).getAuthority());
     }
 
+    @Test
+    void testLoadUserByUsernameMultipleRoles() {
+        User user = userWithRole("manager", "ROLE_HR");
+        user.getUserRoles().add(UserRole.builder()
+                .user(user)
+                .role(Role.builder().roleName("ROLE_EMPLOYEE").build())
+                .activeFlag(true)
+                .build());
+        when(userRepository.findCredentialsByUsername("manager")).thenReturn(credentials(user));
+
+        CustomUserPrincipal principal = (CustomUserPrincipal) customUserDetailsService.loadUserByUsername("manager");
+
+        assertEquals("password", principal.getPassword());
+        assertEquals(7, principal.getUser().getId());
+        assertEquals(2, principal.getAuthorities().size());
+    }
+
+    @Test
+    void testLoadUserByUsernameDisabled() {
+        User user = userWithRole("former", "ROLE_EMPLOYEE");
+        user.setActiveFlag(false);
+        when(userRepository.findCredentialsByUsername("former")).thenReturn(credentials(user));
+
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("former"));
+    }
+
     @Test
     void testLoadUserByUsernameNotFound() {
         // Given
         String username = "nonExistentUser";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Collections.<UserCredentialRow>emptyList());
 
         // When / Then
         assertThrows(
@@ -121,4 +198,125 @@ class CustomUserDetailsServiceTest {
                 "User not found with username: " + username
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUnknownUsernameIsCached() {
+        when(userRepository.findCredentialsByUsername("ghost")).thenReturn(Collections.<UserCredentialRow>emptyList());
+
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("GHOST"));
+
+        // The second lookup is answered from the cache
+        verify(userRepository, times(1)).findCredentialsByUsername(anyString());
+    }
+
+    @Test
+    void testUnknownUsernameInvalidatedWhenUserCreated() {
+        User user = User.builder()
+                .username("ghost")
+                .password("password")
+                .email("ghost@example.com")
+                .activeFlag(true)
+                .build();
+        when(userRepository.findCredentialsByUsername("ghost")).thenReturn(Collections.<UserCredentialRow>emptyList(), credentials(user));
+
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("ghost"));
+        customUserDetailsService.onUserChanged(new UserChangedEvent(1, "ghost"));
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername("ghost");
+
+        assertEquals("ghost", userDetails.getUsername());
+        verify(userRepository, times(2)).findCredentialsByUsername("ghost");
+    }
+
+    @Test
+    void testUnknownUsernameNotCachedWhenCreatedDuringLookup() {
+        User user = User.builder()
+                .username("ghost")
+                .password("password")
+                .email("ghost@example.com")
+                .activeFlag(true)
+                .build();
+        List<UserCredentialRow> rows = credentials(user);
+        when(userRepository.findCredentialsByUsername("ghost")).thenAnswer(invocation -> {
+            // The registration commits after the lookup read nothing
+            customUserDetailsService.onUserChanged(new UserChangedEvent(1, "ghost"));
+            return Collections.<UserCredentialRow>emptyList();
+        }).thenReturn(rows);
+
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("ghost"));
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername("ghost");
+
+        assertEquals("ghost", userDetails.getUsername());
+    }
+
+    private static User userWithRole(String username, String roleName) {
+        User user = User.builder()
+                .id(7)
+                .username(username)
+                .password("password")
+                .email(username + "@example.com")
+                .activeFlag(true)
+                .build();
+        user.getUserRoles().add(UserRole.builder()
+                .user(user)
+                .role(Role.builder().roleName(roleName).build())
+                .activeFlag(true)
+                .build());
+        return user;
+    }
+
+    @Test
+    void testAuthenticatedUserIsCachedSnapshot() {
+        when(userRepository.findCredentialsByUsername("employee")).thenReturn(credentials(userWithRole("employee", "ROLE_EMPLOYEE")));
+
+        UserDetails first = customUserDetailsService.loadAuthenticatedUser("employee");
+        UserDetails second = customUserDetailsService.loadAuthenticatedUser("Employee");
+
+        assertSame(first, second);
+        assertNull(first.getPassword());
+        assertEquals(7, ((CustomUserPrincipal) first).getUser().getId());
+        assertEquals("ROLE_EMPLOYEE", first.getAuthorities().iterator().next().getAuthority());
+        verify(userRepository, times(1)).findCredentialsByUsername(anyString());
+    }
+
+    @Test
+    void testAuthenticatedUserEvictedWhenRolesChange() {
+        when(userRepository.findCredentialsByUsername("employee")).thenReturn(
+                credentials(userWithRole("employee", "ROLE_EMPLOYEE")),
+                credentials(userWithRole("employee", "ROLE_HR")));
+
+        customUserDetailsService.loadAuthenticatedUser("employee");
+        customUserDetailsService.onUserChanged(new UserChangedEvent(7, "employee"));
+        UserDetails reloaded = customUserDetailsService.loadAuthenticatedUser("employee");
+
+        assertEquals("ROLE_HR", reloaded.getAuthorities().iterator().next().getAuthority());
+        verify(userRepository, times(2)).findCredentialsByUsername("employee");
+    }
+
+    @Test
+    void testAuthenticatedUserNotCachedWhenDisabled() {
+        CustomUserDetailsService uncached = new CustomUserDetailsService(userRepository, true, 100, 60000,
+                false, 100, 60000, new SimpleMeterRegistry());
+        when(userRepository.findCredentialsByUsername("employee")).thenReturn(credentials(userWithRole("employee", "ROLE_EMPLOYEE")));
+
+        uncached.loadAuthenticatedUser("employee");
+        uncached.loadAuthenticatedUser("employee");
+
+        verify(userRepository, times(2)).findCredentialsByUsername("employee");
+    }
+
+    @Test
+    void testUpdatePassword() {
+        User user = User.builder()
+                .username("employee")
+                .password("{bcrypt}old")
+                .email("user@example.com")
+                .activeFlag(true)
+                .build();
+
+        UserDetails updated = customUserDetailsService.updatePassword(new CustomUserPrincipal(user), "{bcrypt}new");
+
+        verify(userRepository).updatePassword("employee", "{bcrypt}new");
+        assertEquals("{bcrypt}new", updated.getPassword());
+    }
+}
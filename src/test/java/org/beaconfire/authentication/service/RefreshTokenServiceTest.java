@@ -0,0 +1,113 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.exception.TokenExpiredException;
+import org.beaconfire.authentication.exception.TokenNotFoundException;
+import org.beaconfire.authentication.model.RefreshToken;
+import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.repository.RefreshTokenRepository;
+import org.beaconfire.authentication.security.TokenDigests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 60000);
+        user = User.builder().id(1).username("user1").email("user1@email.com").password("hash").build();
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+    }
+
+    private RefreshToken stored(String token, LocalDateTime expirationDate) {
+        RefreshToken stored = RefreshToken.builder()
+                .id(7)
+                .tokenHash(TokenDigests.sha256(token))
+                .user(user)
+                .familyId("family-1")
+                .expirationDate(expirationDate)
+                .build();
+        when(refreshTokenRepository.findByTokenHash(TokenDigests.sha256(token))).thenReturn(Optional.of(stored));
+        return stored;
+    }
+
+    @Test
+    void testIssueStoresDigestOnly() {
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertEquals(TokenDigests.sha256(token), captor.getValue().getTokenHash());
+        assertNotEquals(token, captor.getValue().getTokenHash());
+        assertSame(user, captor.getValue().getUser());
+    }
+
+    @Test
+    void testRotate() {
+        stored("refresh-1", LocalDateTime.now().plusMinutes(1));
+        when(refreshTokenRepository.markUsed(eq(7), any(LocalDateTime.class))).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("refresh-1");
+
+        assertSame(user, rotation.getUser());
+        assertNotEquals("refresh-1", rotation.getRefreshToken());
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertEquals("family-1", captor.getValue().getFamilyId());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString());
+    }
+
+    @Test
+    void testReuseRevokesFamily() {
+        stored("refresh-1", LocalDateTime.now().plusMinutes(1));
+        when(refreshTokenRepository.markUsed(eq(7), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThrows(TokenNotFoundException.class, () -> refreshTokenService.rotate("refresh-1"));
+        verify(refreshTokenRepository).revokeFamily("family-1");
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void testRevokedToken() {
+        stored("refresh-1", LocalDateTime.now().plusMinutes(1)).setRevokedFlag(true);
+
+        assertThrows(TokenNotFoundException.class, () -> refreshTokenService.rotate("refresh-1"));
+        verify(refreshTokenRepository, never()).markUsed(any(), any());
+    }
+
+    @Test
+    void testExpiredToken() {
+        stored("refresh-1", LocalDateTime.now().minusMinutes(1));
+
+        assertThrows(TokenExpiredException.class, () -> refreshTokenService.rotate("refresh-1"));
+    }
+
+    @Test
+    void testUnknownToken() {
+        assertThrows(TokenNotFoundException.class, () -> refreshTokenService.rotate("unknown"));
+    }
+
+    @Test
+    void testInactiveUser() {
+        user.setActiveFlag(false);
+        stored("refresh-1", LocalDateTime.now().plusMinutes(1));
+        when(refreshTokenRepository.markUsed(eq(7), any(LocalDateTime.class))).thenReturn(1);
+
+        assertThrows(TokenNotFoundException.class, () -> refreshTokenService.rotate("refresh-1"));
+        verify(refreshTokenRepository).revokeFamily("family-1");
+    }
+}
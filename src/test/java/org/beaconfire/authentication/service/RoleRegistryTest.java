@@ -0,0 +1,87 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RoleRegistryTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RoleRegistry roleRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(roleRepository.findAll()).thenReturn(Arrays.asList(
+                Role.builder().id(1).roleName("ROLE_HR").build(),
+                Role.builder().id(2).roleName("ROLE_EMPLOYEE").build()));
+        roleRegistry = new RoleRegistry(roleRepository, transactionManager);
+        roleRegistry.reload();
+    }
+
+    @Test
+    void testLookupWithoutQuery() {
+        assertEquals(1, roleRegistry.findByName("ROLE_HR").get().getId());
+        assertEquals("ROLE_EMPLOYEE", roleRegistry.findById(2).get().getRoleName());
+        assertEquals("ROLE_HR", roleRegistry.getOrCreate("ROLE_HR", "HR").getRoleName());
+
+        verify(roleRepository, never()).findByRoleName(anyString());
+        verify(roleRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testCreatesMissingRoleOnce() {
+        when(roleRepository.findByRoleName("ROLE_ONBOARD")).thenReturn(Optional.empty());
+        when(roleRepository.saveAndFlush(any(Role.class)))
+                .thenReturn(Role.builder().id(3).roleName("ROLE_ONBOARD").build());
+
+        Role created = roleRegistry.getOrCreate("ROLE_ONBOARD", "Default role");
+        Role again = roleRegistry.getOrCreate("ROLE_ONBOARD", "Default role");
+
+        assertEquals(3, created.getId());
+        assertSame(created, again);
+        assertSame(created, roleRegistry.findById(3).get());
+        verify(roleRepository, times(1)).saveAndFlush(any(Role.class));
+    }
+
+    @Test
+    void testDuplicateKeyUsesExistingRole() {
+        when(roleRepository.findByRoleName("ROLE_ONBOARD")).thenReturn(
+                Optional.empty(),
+                Optional.of(Role.builder().id(4).roleName("ROLE_ONBOARD").build()));
+        when(roleRepository.saveAndFlush(any(Role.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 'ROLE_ONBOARD'"));
+
+        Role role = roleRegistry.getOrCreate("ROLE_ONBOARD", "Default role");
+
+        assertEquals(4, role.getId());
+        assertEquals(4, roleRegistry.findByName("ROLE_ONBOARD").get().getId());
+    }
+
+    @Test
+    void testFailedReloadKeepsCatalogue() {
+        when(roleRepository.findAll()).thenThrow(new RuntimeException("Connection refused"));
+
+        roleRegistry.reload();
+
+        assertTrue(roleRegistry.findByName("ROLE_HR").isPresent());
+    }
+}
@@ -0,0 +1,169 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.model.User;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.beaconfire.authentication.repository.projection.UserTokenEpoch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenEpochServiceTest {
+
+    private UserRepository userRepository;
+    private TokenEpochService tokenEpochService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        tokenEpochService = new TokenEpochService(userRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    private static UserTokenEpoch epoch(String username, boolean active, LocalDateTime validAfter) {
+        UserTokenEpoch epoch = mock(UserTokenEpoch.class);
+        when(epoch.getUsername()).thenReturn(username);
+        when(epoch.getActiveFlag()).thenReturn(active);
+        when(epoch.getTokensValidAfter()).thenReturn(validAfter);
+        return epoch;
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    void testUnknownUserIsCurrent() {
+        assertTrue(tokenEpochService.isTokenCurrent("user1", new Date()));
+    }
+
+    @Test
+    void testRefresh() {
+        LocalDateTime revokedAt = LocalDateTime.now().minusHours(1);
+        List<UserTokenEpoch> epochs = Arrays.asList(
+                epoch("revoked", true, revokedAt),
+                epoch("inactive", false, null));
+        when(userRepository.findTokenEpochs()).thenReturn(epochs);
+
+        tokenEpochService.refresh();
+
+        assertFalse(tokenEpochService.isTokenCurrent("revoked", toDate(revokedAt.minusMinutes(1))));
+        assertTrue(tokenEpochService.isTokenCurrent("revoked", toDate(revokedAt.plusMinutes(1))));
+        assertFalse(tokenEpochService.isTokenCurrent("inactive", new Date()));
+        assertTrue(tokenEpochService.isTokenCurrent("user1", new Date()));
+    }
+
+    @Test
+    void testRefreshFailureKeepsTable() {
+        List<UserTokenEpoch> epochs = Arrays.asList(epoch("inactive", false, null));
+        when(userRepository.findTokenEpochs())
+                .thenReturn(epochs)
+                .thenThrow(new IllegalStateException("Database is down"));
+
+        tokenEpochService.refresh();
+        tokenEpochService.refresh();
+
+        assertFalse(tokenEpochService.isTokenCurrent("inactive", new Date()));
+    }
+
+    @Test
+    void testUpdateDuringRefreshIsKept() {
+        when(userRepository.findTokenEpochs()).thenAnswer(invocation -> {
+            // Committed after the query read the table
+            tokenEpochService.deactivated(Collections.singletonList("bob"));
+            return Collections.<UserTokenEpoch>emptyList();
+        });
+
+        tokenEpochService.refresh();
+
+        assertFalse(tokenEpochService.isTokenCurrent("bob", new Date()));
+    }
+
+    @Test
+    void testReactivatedUserIsCurrentAfterRefresh() {
+        List<UserTokenEpoch> epochs = Arrays.asList(epoch("bob", true, LocalDateTime.now().minusMinutes(1)));
+        when(userRepository.findTokenEpochs()).thenReturn(epochs);
+        tokenEpochService.deactivated(Collections.singletonList("bob"));
+
+        tokenEpochService.refresh();
+
+        assertTrue(tokenEpochService.isTokenCurrent("bob", new Date()));
+    }
+
+    @Test
+    void testRevokeIssuedTokens() {
+        User user = User.builder().id(1).username("user1").build();
+        Date issuedBefore = new Date(System.currentTimeMillis() - 60000);
+
+        tokenEpochService.revokeIssuedTokens(user);
+
+        verify(userRepository).updateTokensValidAfter(eq(1), any(LocalDateTime.class));
+        assertFalse(tokenEpochService.isTokenCurrent("user1", issuedBefore));
+        assertTrue(tokenEpochService.isTokenCurrent("user1", new Date(System.currentTimeMillis() + 1000)));
+    }
+
+    @Test
+    void testBulkRevokeAndDeactivate() {
+        UserIdRow alice = mock(UserIdRow.class);
+        when(alice.getId()).thenReturn(1);
+        when(alice.getUsername()).thenReturn("alice");
+        Date before = toDate(LocalDateTime.now().minusMinutes(1));
+
+        tokenEpochService.revokeIssuedTokens(Collections.singletonList(alice));
+        tokenEpochService.deactivated(Collections.singletonList("bob"));
+
+        verify(userRepository).updateTokensValidAfterIn(eq(Collections.singletonList(1)), any(LocalDateTime.class));
+        assertFalse(tokenEpochService.isTokenCurrent("alice", before));
+        assertFalse(tokenEpochService.isTokenCurrent("bob", new Date()));
+        assertTrue(tokenEpochService.isTokenCurrent("carol", before));
+    }
+
+    @Test
+    void testUpdateAppliesOnlyOnceTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        tokenEpochService.deactivated(Collections.singletonList("bob"));
+
+        assertTrue(tokenEpochService.isTokenCurrent("bob", new Date()));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertFalse(tokenEpochService.isTokenCurrent("bob", new Date()));
+    }
+
+    @Test
+    void testRolledBackUpdateIsDropped() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        tokenEpochService.deactivated(Collections.singletonList("bob"));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertTrue(tokenEpochService.isTokenCurrent("bob", new Date()));
+    }
+}
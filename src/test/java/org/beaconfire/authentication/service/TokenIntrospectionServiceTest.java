@@ -0,0 +1,101 @@
+package org.beaconfire.authentication.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.beaconfire.authentication.dto.response.TokenIntrospectionResponse;
+import org.beaconfire.authentication.security.JwtTokenProvider;
+import org.beaconfire.authentication.security.ParsedToken;
+import org.beaconfire.authentication.security.TokenFailureReason;
+import org.beaconfire.authentication.security.VerifiedTokenCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTest {
+
+    private JwtTokenProvider tokenProvider;
+    private TokenRevocationService tokenRevocationService;
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        tokenProvider.setJwtExpirationInMs(3600000);
+        tokenProvider.setJwtSecret("NiXTYNwyutkwyp34w3TYjb297yYUZCaCmr3YhDdT0W4=");
+        tokenRevocationService = mock(TokenRevocationService.class);
+        TokenEpochService tokenEpochService = mock(TokenEpochService.class);
+        when(tokenEpochService.isTokenCurrent(anyString(), any())).thenReturn(true);
+        VerifiedTokenCache cache = new VerifiedTokenCache(false, 100, 60000, new SimpleMeterRegistry());
+        tokenIntrospectionService = new TokenIntrospectionService(tokenProvider, cache, tokenRevocationService,
+                tokenEpochService, new SimpleMeterRegistry(), 2, 4, 100, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenIntrospectionService.shutdown();
+    }
+
+    private String token(int userId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", String.valueOf(userId));
+        claims.put("username", "user" + userId);
+        claims.put("roles", Collections.singletonList("ROLE_EMPLOYEE"));
+        return tokenProvider.generateTokenWithClaims(claims);
+    }
+
+    @Test
+    void testResultsKeepRequestOrder() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            tokens.add(i % 10 == 0 ? "not-a-token" : token(i));
+        }
+
+        List<TokenIntrospectionResponse> results = tokenIntrospectionService.introspect(tokens);
+
+        assertEquals(50, results.size());
+        for (int i = 1; i <= 50; i++) {
+            TokenIntrospectionResponse result = results.get(i - 1);
+            if (i % 10 == 0) {
+                assertFalse(result.isActive());
+                assertEquals(TokenFailureReason.MALFORMED, result.getFailureReason());
+            } else {
+                assertTrue(result.isActive());
+                assertEquals(i, result.getUserId());
+                assertEquals("user" + i, result.getUsername());
+                assertEquals(Collections.singletonList("ROLE_EMPLOYEE"), result.getRoles());
+                assertNotNull(result.getExpiration());
+            }
+        }
+    }
+
+    @Test
+    void testRevokedToken() {
+        String token = token(1);
+        ParsedToken parsed = tokenProvider.parseToken(token);
+        when(tokenRevocationService.isRevoked(parsed.getTokenId())).thenReturn(true);
+
+        TokenIntrospectionResponse result = tokenIntrospectionService.introspect(Collections.singletonList(token)).get(0);
+
+        assertFalse(result.isActive());
+        assertEquals(TokenFailureReason.REVOKED, result.getFailureReason());
+        assertEquals("user1", result.getUsername());
+    }
+
+    @Test
+    void testBatchTooLarge() {
+        List<String> tokens = Collections.nCopies(101, "token");
+
+        assertThrows(IllegalArgumentException.class, () -> tokenIntrospectionService.introspect(tokens));
+    }
+}
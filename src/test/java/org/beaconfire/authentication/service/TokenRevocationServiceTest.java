@@ -0,0 +1,97 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.model.RevokedToken;
+import org.beaconfire.authentication.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    private RevokedTokenRepository revokedTokenRepository;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        when(revokedTokenRepository.findValidTokenIds(any(LocalDateTime.class)))
+                .thenReturn(Collections.singletonList("revoked-jti"));
+        when(revokedTokenRepository.findTokenIdsRevokedSince(any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000, 0.001, 3600000);
+        tokenRevocationService.rebuild();
+    }
+
+    @Test
+    void testUnrevokedTokenSkipsDatabase() {
+        assertFalse(tokenRevocationService.isRevoked("valid-jti"));
+        assertFalse(tokenRevocationService.isRevoked(null));
+        verify(revokedTokenRepository, never()).existsById(any());
+    }
+
+    @Test
+    void testLoadedTokenIsRevoked() {
+        when(revokedTokenRepository.existsById("revoked-jti")).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isRevoked("revoked-jti"));
+    }
+
+    @Test
+    void testRevoke() {
+        tokenRevocationService.revoke("new-jti", new Date(System.currentTimeMillis() + 60000));
+        when(revokedTokenRepository.existsById("new-jti")).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isRevoked("new-jti"));
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void testConcurrentRevokeIsIgnored() {
+        when(revokedTokenRepository.save(any(RevokedToken.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 'new-jti'"));
+
+        assertDoesNotThrow(() -> tokenRevocationService.revoke("new-jti", null));
+    }
+
+    @Test
+    void testRevokeRejectsOversizedTokenId() {
+        String tokenId = new String(new char[TokenRevocationService.MAX_TOKEN_ID_LENGTH + 1]).replace('\0', 'a');
+
+        assertThrows(IllegalArgumentException.class, () -> tokenRevocationService.revoke(tokenId, null));
+        verify(revokedTokenRepository, never()).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void testSyncPicksUpRemoteRevocations() {
+        when(revokedTokenRepository.findTokenIdsRevokedSince(any(LocalDateTime.class)))
+                .thenReturn(Collections.singletonList("remote-jti"));
+        when(revokedTokenRepository.existsById("remote-jti")).thenReturn(true);
+
+        tokenRevocationService.sync();
+
+        assertTrue(tokenRevocationService.isRevoked("remote-jti"));
+    }
+
+    @Test
+    void testFailedLoadChecksDatabase() {
+        when(revokedTokenRepository.findValidTokenIds(any(LocalDateTime.class)))
+                .thenThrow(new RuntimeException("database down"));
+        TokenRevocationService unloaded = new TokenRevocationService(revokedTokenRepository, 1000, 0.001, 3600000);
+        unloaded.rebuild();
+
+        unloaded.isRevoked("valid-jti");
+
+        verify(revokedTokenRepository).existsById("valid-jti");
+    }
+}
@@ -0,0 +1,175 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.dto.request.BulkUserUpdateRequest;
+import org.beaconfire.authentication.dto.response.BulkUserUpdateResponse;
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.UserRoleRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserBulkUpdateServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserRoleRepository userRoleRepository;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private TokenEpochService tokenEpochService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserBulkUpdateService userBulkUpdateService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        userBulkUpdateService = new UserBulkUpdateService(userRepository, userRoleRepository, roleRegistry,
+                tokenEpochService, eventPublisher, 100);
+    }
+
+    @Test
+    void testReassignRoleByCurrentRole() {
+        List<UserIdRow> users = Arrays.asList(idRow(1, "alice"), idRow(2, "bob"));
+        when(userRepository.findIdsByRoleName("ROLE_ONBOARDING")).thenReturn(users);
+        when(roleRegistry.findByName("ROLE_EMPLOYEE"))
+                .thenReturn(Optional.of(Role.builder().id(5).roleName("ROLE_EMPLOYEE").build()));
+        when(userRoleRepository.deleteOtherRoles(Arrays.asList(1, 2), 5)).thenReturn(2);
+        when(userRoleRepository.activateRole(eq(Arrays.asList(1, 2)), eq(5), any())).thenReturn(0);
+        when(userRoleRepository.insertMissingRole(eq(Arrays.asList(1, 2)), eq(5), any())).thenReturn(2);
+
+        BulkUserUpdateResponse response = userBulkUpdateService.reassignRole(BulkUserUpdateRequest.builder()
+                .currentRole("ROLE_ONBOARDING")
+                .role("ROLE_EMPLOYEE")
+                .build());
+
+        assertEquals(2, response.getMatched());
+        assertEquals(2, response.getRolesRemoved());
+        assertEquals(2, response.getRolesAdded());
+        verify(tokenEpochService).revokeIssuedTokens(users);
+        verify(eventPublisher, times(2)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testReassignRoleKeepsTokensOfUsersWithOnlyThatRole() {
+        UserIdRow alice = idRow(1, "alice");
+        UserIdRow bob = idRow(2, "bob");
+        List<UserIdRow> users = Arrays.asList(alice, bob);
+        List<UserIdRow> unchanged = Collections.singletonList(bob);
+        when(userRepository.findIdsByIdIn(Arrays.asList(1, 2))).thenReturn(users);
+        when(roleRegistry.findByName("ROLE_EMPLOYEE"))
+                .thenReturn(Optional.of(Role.builder().id(5).roleName("ROLE_EMPLOYEE").build()));
+        when(userRepository.findIdsWithOnlyActiveRole(Arrays.asList(1, 2), 5)).thenReturn(unchanged);
+
+        userBulkUpdateService.reassignRole(BulkUserUpdateRequest.builder()
+                .userIds(Arrays.asList(1, 2))
+                .role("ROLE_EMPLOYEE")
+                .build());
+
+        verify(tokenEpochService).revokeIssuedTokens(Collections.singletonList(alice));
+        verify(eventPublisher, times(1)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testDeactivateByIds() {
+        List<UserIdRow> users = Arrays.asList(idRow(1, "alice"), idRow(3, "carol"));
+        when(userRepository.findIdsByIdIn(Arrays.asList(1, 3, 99))).thenReturn(users);
+        when(userRepository.updateActiveFlagIn(eq(Arrays.asList(1, 3)), eq(false), any())).thenReturn(1);
+        // Only carol was still active
+        List<UserIdRow> changed = Collections.singletonList(users.get(1));
+        when(userRepository.findIdsByIdInAndActiveFlagNot(Arrays.asList(1, 3), false)).thenReturn(changed);
+
+        BulkUserUpdateResponse response = userBulkUpdateService.setActive(BulkUserUpdateRequest.builder()
+                .userIds(Arrays.asList(1, 3, 99))
+                .active(false)
+                .build());
+
+        assertEquals(2, response.getMatched());
+        assertEquals(1, response.getUpdated());
+        verify(tokenEpochService).deactivated(Collections.singletonList("carol"));
+        verify(tokenEpochService, never()).revokeIssuedTokens(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testActivateRevokesEarlierTokens() {
+        List<UserIdRow> users = Collections.singletonList(idRow(1, "alice"));
+        when(userRepository.findIdsByIdIn(Collections.singletonList(1))).thenReturn(users);
+        when(userRepository.findIdsByIdInAndActiveFlagNot(Collections.singletonList(1), true)).thenReturn(users);
+
+        userBulkUpdateService.setActive(BulkUserUpdateRequest.builder()
+                .userIds(Collections.singletonList(1))
+                .active(true)
+                .build());
+
+        verify(tokenEpochService).revokeIssuedTokens(users);
+        verify(tokenEpochService, never()).deactivated(any());
+    }
+
+    @Test
+    void testActivateKeepsTokensOfActiveUsers() {
+        List<UserIdRow> users = Collections.singletonList(idRow(1, "alice"));
+        when(userRepository.findIdsByIdIn(Collections.singletonList(1))).thenReturn(users);
+
+        BulkUserUpdateResponse response = userBulkUpdateService.setActive(BulkUserUpdateRequest.builder()
+                .userIds(Collections.singletonList(1))
+                .active(true)
+                .build());
+
+        assertEquals(0, response.getUpdated());
+        verifyNoInteractions(tokenEpochService, eventPublisher);
+    }
+
+    @Test
+    void testReassignUnknownRole() {
+        when(roleRegistry.findByName("ROLE_COMPOSITE")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> userBulkUpdateService.reassignRole(
+                BulkUserUpdateRequest.builder().currentRole("ROLE_HR").role("ROLE_COMPOSITE").build()));
+        verify(roleRegistry, never()).getOrCreate(any(), any());
+        verifyNoInteractions(userRepository, userRoleRepository, tokenEpochService);
+    }
+
+    @Test
+    void testInvalidSelection() {
+        assertThrows(IllegalArgumentException.class, () -> userBulkUpdateService.setActive(
+                BulkUserUpdateRequest.builder().active(false).build()));
+        assertThrows(IllegalArgumentException.class, () -> userBulkUpdateService.setActive(
+                BulkUserUpdateRequest.builder().userIds(Collections.singletonList(1)).currentRole("ROLE_HR")
+                        .active(false).build()));
+        assertThrows(IllegalArgumentException.class, () -> userBulkUpdateService.reassignRole(
+                BulkUserUpdateRequest.builder().userIds(Collections.singletonList(1)).build()));
+        verifyNoInteractions(userRoleRepository, tokenEpochService, eventPublisher);
+        verify(userRepository, never()).updateActiveFlagIn(anyCollection(), any(), any());
+    }
+
+    private static UserIdRow idRow(Integer id, String username) {
+        UserIdRow row = mock(UserIdRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getUsername()).thenReturn(username);
+        return row;
+    }
+}
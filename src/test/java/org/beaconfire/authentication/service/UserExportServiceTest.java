@@ -0,0 +1,86 @@
+package org.beaconfire.authentication.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserExportRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        userExportService = new UserExportService(userRepository, transactionManager, objectMapper);
+    }
+
+    @Test
+    void testExportWritesOneLinePerUser() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<UserExportRow> rows = Stream.of(
+                row(1, "alice", "ROLE_ADMIN"),
+                row(1, "alice", "ROLE_HR"),
+                row(2, "bob", null),
+                row(3, "carol", "ROLE_ONBOARDING"));
+        when(userRepository.streamUserExport()).thenReturn(rows.onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, userExportService.export(out));
+
+        String body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        JsonNode alice = objectMapper.readTree(lines[0]);
+        assertEquals(1, alice.get("userId").asInt());
+        assertEquals("alice@email.com", alice.get("email").asText());
+        assertEquals(2, alice.get("roles").size());
+        assertEquals("ROLE_HR", alice.get("roles").get(1).asText());
+        assertEquals(0, objectMapper.readTree(lines[1]).get("roles").size());
+        assertEquals("carol", objectMapper.readTree(lines[2]).get("username").asText());
+        assertTrue(closed.get());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testExportWithoutUsers() {
+        when(userRepository.streamUserExport()).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, userExportService.export(out));
+        assertEquals(0, out.size());
+    }
+
+    private static UserExportRow row(Integer id, String username, String roleName) {
+        UserExportRow row = mock(UserExportRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getUsername()).thenReturn(username);
+        when(row.getEmail()).thenReturn(username + "@email.com");
+        when(row.getActiveFlag()).thenReturn(true);
+        when(row.getCreateDate()).thenReturn(LocalDateTime.of(2025, 7, 1, 9, 0));
+        when(row.getRoleName()).thenReturn(roleName);
+        return row;
+    }
+}
@@ -0,0 +1,191 @@
+package org.beaconfire.authentication.service;
+
+import org.beaconfire.authentication.dto.request.UserImportRequest;
+import org.beaconfire.authentication.dto.response.UserImportResponse;
+import org.beaconfire.authentication.dto.user.UserImportEntry;
+import org.beaconfire.authentication.dto.user.UserImportResult;
+import org.beaconfire.authentication.event.UserChangedEvent;
+import org.beaconfire.authentication.exception.UserAlreadyExistsException;
+import org.beaconfire.authentication.model.Role;
+import org.beaconfire.authentication.repository.UserRepository;
+import org.beaconfire.authentication.repository.projection.UserIdRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+        when(roleRegistry.getOrCreate(anyString(), anyString()))
+                .thenReturn(Role.builder().id(3).roleName(UserImportService.DEFAULT_ROLE_NAME).build());
+        userImportService = new UserImportService(userRepository, roleRegistry, passwordEncoder, jdbcTemplate,
+                transactionManager, Validation.buildDefaultValidatorFactory().getValidator(), eventPublisher,
+                100, 50, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportReportsEachEntry() {
+        // Looked up before the insert to find taken usernames, then after it for the new ids
+        List<UserIdRow> taken = Collections.singletonList(idRow(7, "Taken"));
+        List<UserIdRow> created = Arrays.asList(idRow(10, "alice"), idRow(11, "bob"));
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenReturn(taken, created);
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.emptyList());
+        UserImportRequest request = UserImportRequest.builder()
+                .users(Arrays.asList(
+                        entry("alice", "alice@email.com", "password1"),
+                        entry("carl", "carl@email.com", "short"),
+                        entry("ALICE", "alice2@email.com", "password2"),
+                        entry("taken", "taken@email.com", "password3"),
+                        entry("bob", "bob@email.com", "password4")))
+                .build();
+
+        UserImportResponse response = userImportService.importUsers(request);
+
+        assertEquals(2, response.getCreated());
+        assertEquals(3, response.getFailed());
+        List<UserImportResult> results = response.getResults();
+        assertTrue(results.get(0).isCreated());
+        assertEquals(10, results.get(0).getUserId());
+        assertEquals("Password must be between 6 and 255 characters", results.get(1).getError());
+        assertEquals("Username appears more than once in the import.", results.get(2).getError());
+        assertEquals("Username already exists.", results.get(3).getError());
+        assertEquals(11, results.get(4).getUserId());
+        assertEquals(4, results.get(4).getIndex());
+
+        ArgumentCaptor<Collection<Integer>> users = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO User "), users.capture(), eq(50),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(Arrays.asList(0, 4), users.getValue());
+        // One statement links both users to the role
+        ArgumentCaptor<Object> linkArgs = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(endsWith("WHERE u.username IN (?, ?)"), linkArgs.capture());
+        List<Object> args = linkArgs.getAllValues();
+        assertEquals(Arrays.asList(3, true, "alice", "bob"),
+                Arrays.asList(args.get(0), args.get(1), args.get(4), args.get(5)));
+        verify(passwordEncoder, times(2)).encode(anyString());
+        verify(eventPublisher, times(2)).publishEvent(any(UserChangedEvent.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testImportWithoutValidEntriesInsertsNothing() {
+        UserImportRequest request = UserImportRequest.builder()
+                .users(Collections.singletonList(entry("al", "not an email", "password1")))
+                .build();
+
+        UserImportResponse response = userImportService.importUsers(request);
+
+        assertEquals(0, response.getCreated());
+        assertFalse(response.getResults().get(0).isCreated());
+        verifyNoInteractions(jdbcTemplate, passwordEncoder, roleRegistry);
+    }
+
+    @Test
+    void testImportRejectsUnknownRole() {
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenReturn(Collections.emptyList());
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.emptyList());
+        when(roleRegistry.findByName("ROLE_COMPOSITE")).thenReturn(Optional.empty());
+        UserImportRequest request = UserImportRequest.builder()
+                .role("ROLE_COMPOSITE")
+                .users(Collections.singletonList(entry("alice", "alice@email.com", "password1")))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> userImportService.importUsers(request));
+        verify(roleRegistry, never()).getOrCreate(anyString(), anyString());
+        verifyNoInteractions(jdbcTemplate, passwordEncoder);
+    }
+
+    @Test
+    void testImportRejectsOversizedRequest() {
+        UserImportEntry[] entries = new UserImportEntry[101];
+        Arrays.fill(entries, entry("alice", "alice@email.com", "password1"));
+        UserImportRequest request = UserImportRequest.builder().users(Arrays.asList(entries)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> userImportService.importUsers(request));
+        assertThrows(IllegalArgumentException.class,
+                () -> userImportService.importUsers(new UserImportRequest(null, Collections.emptyList())));
+        verifyNoInteractions(userRepository, jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportConflictingWithConcurrentCreation() {
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenReturn(Collections.emptyList());
+        when(userRepository.findEmailsIn(anyCollection())).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate entry"));
+        UserImportRequest request = UserImportRequest.builder()
+                .users(Collections.singletonList(entry("alice", "alice@email.com", "password1")))
+                .build();
+
+        assertThrows(UserAlreadyExistsException.class, () -> userImportService.importUsers(request));
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static UserImportEntry entry(String username, String email, String password) {
+        return UserImportEntry.builder().username(username).email(email).password(password).build();
+    }
+
+    private static UserIdRow idRow(Integer id, String username) {
+        UserIdRow row = mock(UserIdRow.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getUsername()).thenReturn(username);
+        return row;
+    }
+}